@@ -0,0 +1,30 @@
+/**
+ * The strategies that a MemorySpace can use to choose the free block
+ * from which a malloc request is carved.
+ */
+public enum AllocationPolicy {
+
+    /** Scans the free list from start to end, and takes the first block that fits. */
+    FIRST_FIT,
+
+    /**
+     * Same choice as FIRST_FIT (the exact same addresses are returned), but the free
+     * list is indexed by a balanced tree, so the first fitting block is found in O(log n).
+     */
+    INDEXED_FIRST_FIT,
+
+    /**
+     * Like FIRST_FIT, but each scan starts where the previous allocation was made,
+     * and wraps around to the start of the free list.
+     */
+    NEXT_FIT,
+
+    /** Scans the whole free list, and takes the shortest block that fits. */
+    BEST_FIT,
+
+    /**
+     * Keeps the free blocks in power-of-two size classes, and takes a block from the
+     * smallest size class that can hold the request (a "good fit"), in near-constant time.
+     */
+    SEGREGATED_FIT
+}
@@ -0,0 +1,58 @@
+/**
+ * The implementations of MemoryAllocator that can back a memory space.
+ * The engine can be chosen by configuration (see fromConfiguration), so that the same
+ * program can be run, and its fragmentation and latency compared, with each engine.
+ */
+public enum AllocatorEngine {
+
+    /** A first-fit MemorySpace, whose free and allocated lists are LinkedLists. */
+    LINKED_LIST {
+        public InspectableAllocator create(int maxSize) {
+            return new MemorySpace(maxSize);
+        }
+    },
+
+    /** A first-fit ArrayMemorySpace, whose lists are stored in int arrays. */
+    ARRAY {
+        public InspectableAllocator create(int maxSize) {
+            return new ArrayMemorySpace(maxSize);
+        }
+    },
+
+    /** A BuddyMemorySpace: power-of-two blocks, merged with their buddies when freed. */
+    BUDDY {
+        public InspectableAllocator create(int maxSize) {
+            return new BuddyMemorySpace(maxSize);
+        }
+    },
+
+    /** A BitmapMemorySpace: one bit per word, first fit by address. */
+    BITMAP {
+        public InspectableAllocator create(int maxSize) {
+            return new BitmapMemorySpace(maxSize);
+        }
+    },
+
+    /** A TlsfMemorySpace: two-level segregated fit, O(1) malloc and free. */
+    TLSF {
+        public InspectableAllocator create(int maxSize) {
+            return new TlsfMemorySpace(maxSize);
+        }
+    };
+
+    /** The name of the system property that selects the engine (e.g. -Dmemory.engine=BUDDY). */
+    public static final String PROPERTY = "memory.engine";
+
+    /** Constructs a new memory allocator of this engine, that manages the addresses [0, maxSize). */
+    public abstract InspectableAllocator create(int maxSize);
+
+    /**
+     * Returns the engine named by the system property memory.engine (case insensitive),
+     * or LINKED_LIST if the property is not set.
+     * @throws IllegalArgumentException if the property names no engine
+     */
+    public static AllocatorEngine fromConfiguration() {
+        String name = System.getProperty(PROPERTY);
+        return (name == null) ? LINKED_LIST : valueOf(name.trim().toUpperCase(java.util.Locale.ROOT));
+    }
+}
@@ -0,0 +1,134 @@
+/**
+ * A managed memory space with the same behavior as a first-fit MemorySpace, whose free and
+ * allocated lists are BlockArrayLists. No object is created per block: the blocks live in
+ * the int storage of the two lists, and the allocated blocks are indexed by an IntIntMap.
+ * The storage of the lists can be off-heap, so that the number of blocks does not affect
+ * the garbage collector.
+ */
+public class ArrayMemorySpace implements InspectableAllocator {
+
+    private final BlockArrayList allocatedList; // blocks currently allocated
+    private final BlockArrayList freeList;      // blocks currently free
+    private final IntIntMap allocatedIndex;     // base address -> first slot of allocatedList with that address
+    private final IntIntMap sharedAddresses;    // base address -> number of allocated slots with that address left out of allocatedIndex
+
+    /** Constructs a new managed memory space of a given maximal size, whose lists are stored on the heap. */
+    public ArrayMemorySpace(int maxSize) {
+        this(maxSize, false);
+    }
+
+    /**
+     * Constructs a new managed memory space of a given maximal size.
+     * If offHeap is true, the free and allocated lists are stored in direct (off-heap) buffers.
+     */
+    public ArrayMemorySpace(int maxSize, boolean offHeap) {
+        if (offHeap) {
+            allocatedList = new BlockArrayList(new OffHeapBlockStorage(16));
+            freeList = new BlockArrayList(new OffHeapBlockStorage(16));
+        } else {
+            allocatedList = new BlockArrayList();
+            freeList = new BlockArrayList();
+        }
+        allocatedIndex = new IntIntMap();
+        sharedAddresses = new IntIntMap();
+        // entire memory is initially free
+        freeList.addLast(0, maxSize);
+    }
+
+    /** Returns the number of off-heap bytes used by the lists of this memory space (0 if they are on the heap). */
+    public long offHeapBytes() {
+        return offHeapBytes(allocatedList) + offHeapBytes(freeList);
+    }
+
+    private static long offHeapBytes(BlockArrayList list) {
+        BlockStorage storage = list.getStorage();
+        return (storage instanceof OffHeapBlockStorage) ? ((OffHeapBlockStorage) storage).offHeapBytes() : 0;
+    }
+
+    /**
+     * Allocates a memory block of length 'length', using a "first-fit" approach (see MemorySpace.malloc).
+     * Return value = baseAddress of the allocated block, or -1 if fail.
+     * Like MemorySpace.malloc, a non-positive length is carved out like any other, so several
+     * allocated blocks can share a base address; free then frees the oldest of them first.
+     */
+    public int malloc(int length) {
+        for (int slot = freeList.getFirst(); slot != BlockArrayList.NIL; slot = freeList.next(slot)) {
+            int freeLength = freeList.getLength(slot);
+            if (freeLength >= length) {
+                int address = freeList.getBase(slot);
+                int allocated = allocatedList.addLast(address, length);
+                if (allocatedIndex.containsKey(address)) {
+                    sharedAddresses.put(address, sharedAddresses.get(address, 0) + 1);
+                } else {
+                    allocatedIndex.put(address, allocated);
+                }
+                if (freeLength == length) {
+                    freeList.removeSlot(slot);
+                } else {
+                    freeList.setBase(slot, address + length);
+                    freeList.setLength(slot, freeLength - length);
+                }
+                return address;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Frees the memory block whose base address == address (see MemorySpace.free).
+     * @throws IllegalArgumentException if no block is allocated
+     */
+    public void free(int address) {
+        if (allocatedList.getSize() == 0) {
+            throw new IllegalArgumentException("index must be between 0 and size");
+        }
+        int slot = allocatedIndex.remove(address, BlockArrayList.NIL);
+        if (slot == BlockArrayList.NIL) {
+            return;
+        }
+        freeList.addLast(address, allocatedList.getLength(slot));
+        allocatedList.removeSlot(slot);
+        if (sharedAddresses.containsKey(address)) {
+            reindexAllocated(address);
+        }
+    }
+
+    // Indexes the first slot of allocatedList whose block starts at the given address (see MemorySpace.free)
+    private void reindexAllocated(int address) {
+        for (int slot = allocatedList.getFirst(); slot != BlockArrayList.NIL; slot = allocatedList.next(slot)) {
+            if (allocatedList.getBase(slot) == address) {
+                allocatedIndex.put(address, slot);
+                int shared = sharedAddresses.remove(address, 0);
+                if (shared > 1) {
+                    sharedAddresses.put(address, shared - 1);
+                }
+                return;
+            }
+        }
+    }
+
+    /** Sorts freeList by base address, and merges its consecutive blocks (see MemorySpace.defrag). */
+    public void defrag() {
+        if (freeList.getSize() < 2) {
+            return;
+        }
+        freeList.sortByBaseAddress();
+        freeList.mergeAdjacentBlocks();
+    }
+
+    /** Returns an immutable snapshot of the free and allocated lists. */
+    public MemorySpaceSnapshot snapshot() {
+        int[] freeBases = new int[freeList.getSize()];
+        int[] freeLengths = new int[freeList.getSize()];
+        MemorySpaceSnapshot.copy(freeList, freeBases, freeLengths, 0);
+        int[] allocatedBases = new int[allocatedList.getSize()];
+        int[] allocatedLengths = new int[allocatedList.getSize()];
+        MemorySpaceSnapshot.copy(allocatedList, allocatedBases, allocatedLengths, 0);
+        return new MemorySpaceSnapshot(freeBases, freeLengths, allocatedBases, allocatedLengths);
+    }
+
+    /** Returns the free blocks, then "\n", then the allocated blocks (see MemorySpace.toString). */
+    public String toString() {
+        return freeList.toString() + "\n" + allocatedList.toString();
+    }
+}
@@ -0,0 +1,191 @@
+/**
+ * A managed memory space that tracks its memory with a bitmap: one bit per granule
+ * (a fixed number of words), set if the granule is allocated. No object is kept per free
+ * block, so a region of tiny blocks costs one bit per granule, whatever its fragmentation.
+ *
+ * A malloc takes the first run of free granules (by address) that can hold the request.
+ * The bitmap is scanned a 64-bit word at a time: full and empty words are skipped in one step,
+ * and the ends of runs inside a word are found with Long.numberOfTrailingZeros.
+ * Lengths are rounded up to a multiple of the granule. The free blocks are the maximal runs of
+ * free granules, so free memory is always defragmented, and toString renders them in the
+ * "(baseAddress , length)" format of MemorySpace.
+ */
+public class BitmapMemorySpace implements InspectableAllocator {
+
+    private final int granule;                  // length of a granule, in words
+    private final int granules;                 // number of granules in the memory space
+    private final long[] bits;                  // bit i of bits[i / 64] is set iff granule i is allocated
+    private final BlockArrayList allocatedList; // allocated blocks, in allocation order
+    private final IntIntMap allocatedSlot;      // base address -> slot in allocatedList
+
+    /** Constructs a new bitmap memory space of a given maximal size, with one bit per word. */
+    public BitmapMemorySpace(int maxSize) {
+        this(maxSize, 1);
+    }
+
+    /**
+     * Constructs a new bitmap memory space of a given maximal size, with one bit per granule
+     * of the given length. If maxSize is not a multiple of the granule, the rest is not used.
+     */
+    public BitmapMemorySpace(int maxSize, int granule) {
+        if (maxSize < 0 || granule <= 0) {
+            throw new IllegalArgumentException("maxSize must not be negative, and granule must be positive");
+        }
+        this.granule = granule;
+        granules = maxSize / granule;
+        bits = new long[(granules + 63) / 64];
+        if (granules % 64 != 0) {
+            // the bits after the last granule are set, so they never look free
+            bits[bits.length - 1] = -1L << (granules % 64);
+        }
+        allocatedList = new BlockArrayList();
+        allocatedSlot = new IntIntMap();
+    }
+
+    /** Returns the total length of the free granules. */
+    public int getFreeSize() {
+        int used = 0;
+        for (long word : bits) {
+            used += Long.bitCount(word);
+        }
+        return (bits.length * 64 - used) * granule;
+    }
+
+    /**
+     * Allocates the first run of free granules that can hold 'length' words.
+     * Returns the base address of the allocated block, or -1 if there is no room (or length is not positive).
+     */
+    public int malloc(int length) {
+        if (length <= 0) {
+            return -1;
+        }
+        int needed = (int) (((long) length + granule - 1) / granule);
+        for (int start = nextFree(0); start < granules; ) {
+            int end = nextUsed(start);
+            if (end - start >= needed) {
+                setRange(start, start + needed);
+                int address = start * granule;
+                allocatedSlot.put(address, allocatedList.addLast(address, needed * granule));
+                return address;
+            }
+            start = nextFree(end);
+        }
+        return -1;
+    }
+
+    /**
+     * Frees the block whose base address == address, by clearing its bits.
+     * Does nothing if no block is allocated at this address.
+     * @throws IllegalArgumentException if no block is allocated (see MemorySpace.free)
+     */
+    public void free(int address) {
+        if (allocatedList.getSize() == 0) {
+            throw new IllegalArgumentException("index must be between 0 and size");
+        }
+        int slot = allocatedSlot.remove(address, BlockArrayList.NIL);
+        if (slot == BlockArrayList.NIL) {
+            return;
+        }
+        int start = address / granule;
+        clearRange(start, start + allocatedList.getLength(slot) / granule);
+        allocatedList.removeSlot(slot);
+    }
+
+    /** Does nothing: adjacent free granules always form a single free block. */
+    public void defrag() {
+    }
+
+    /** Returns an immutable snapshot of the free blocks and the allocated blocks, in the order of toString. */
+    public MemorySpaceSnapshot snapshot() {
+        int freeCount = 0;
+        for (int start = nextFree(0); start < granules; start = nextFree(nextUsed(start))) {
+            freeCount++;
+        }
+        int[] freeBases = new int[freeCount];
+        int[] freeLengths = new int[freeCount];
+        int i = 0;
+        for (int start = nextFree(0); start < granules; ) {
+            int end = nextUsed(start);
+            freeBases[i] = start * granule;
+            freeLengths[i] = (end - start) * granule;
+            i++;
+            start = nextFree(end);
+        }
+        int[] allocatedBases = new int[allocatedList.getSize()];
+        int[] allocatedLengths = new int[allocatedList.getSize()];
+        MemorySpaceSnapshot.copy(allocatedList, allocatedBases, allocatedLengths, 0);
+        return new MemorySpaceSnapshot(freeBases, freeLengths, allocatedBases, allocatedLengths);
+    }
+
+    /**
+     * Returns the free blocks (the maximal runs of free granules, by address), then "\n",
+     * then the allocated blocks, in the format of MemorySpace.toString.
+     */
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int start = nextFree(0); start < granules; ) {
+            int end = nextUsed(start);
+            sb.append("(").append(start * granule).append(" , ").append((end - start) * granule).append(") ");
+            start = nextFree(end);
+        }
+        return sb + "\n" + allocatedList.toString();
+    }
+
+    // Returns the first free granule at or after 'from', or granules if there is none
+    private int nextFree(int from) {
+        int w = from >>> 6;
+        if (w >= bits.length) {
+            return granules;
+        }
+        long word = ~bits[w] & (-1L << from);
+        while (word == 0) {
+            if (++w == bits.length) {
+                return granules;
+            }
+            word = ~bits[w];
+        }
+        return Math.min(granules, (w << 6) + Long.numberOfTrailingZeros(word));
+    }
+
+    // Returns the first allocated granule at or after 'from', or granules if there is none
+    private int nextUsed(int from) {
+        int w = from >>> 6;
+        if (w >= bits.length) {
+            return granules;
+        }
+        long word = bits[w] & (-1L << from);
+        while (word == 0) {
+            if (++w == bits.length) {
+                return granules;
+            }
+            word = bits[w];
+        }
+        return Math.min(granules, (w << 6) + Long.numberOfTrailingZeros(word));
+    }
+
+    // Sets the bits of the granules [from, to)
+    private void setRange(int from, int to) {
+        for (int w = from >>> 6; w <= (to - 1) >>> 6; w++) {
+            bits[w] |= rangeMask(w, from, to);
+        }
+    }
+
+    // Clears the bits of the granules [from, to)
+    private void clearRange(int from, int to) {
+        for (int w = from >>> 6; w <= (to - 1) >>> 6; w++) {
+            bits[w] &= ~rangeMask(w, from, to);
+        }
+    }
+
+    // Returns the bits of word w that belong to the granules [from, to)
+    private static long rangeMask(int w, int from, int to) {
+        long mask = -1L;
+        if (from > w << 6) {
+            mask &= -1L << from;
+        }
+        if (to < (w + 1) << 6) {
+            mask &= ~(-1L << to);
+        }
+        return mask;
+    }
+}
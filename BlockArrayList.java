@@ -0,0 +1,313 @@
+/**
+ * A list of memory blocks, like LinkedList, that is stored in a BlockStorage (parallel int
+ * arrays, on the heap or off it) instead of Node and MemoryBlock objects. Each element of the
+ * list occupies one slot of the storage (its base address, length, and the slots of its next
+ * and previous elements), so the list holds no per-element objects. The slots of removed
+ * elements are chained in a free-slot list and reused by later additions.
+ *
+ * Elements are referred to by their slot numbers, which play the role of nodes:
+ * a slot number stays valid until its element is removed. NIL (-1) plays the role of null.
+ */
+public class BlockArrayList {
+
+    /** The slot number that refers to no element. */
+    public static final int NIL = -1;
+
+    // base address, length, next slot and previous slot of each slot
+    // (the next slot of an unused slot is the next unused slot)
+    private final BlockStorage storage;
+
+    private int first;    // slot of the first element (NIL if the list is empty)
+    private int last;     // slot of the last element (NIL if the list is empty)
+    private int size;     // number of elements in this list
+    private int unused;   // first slot of the chain of unused slots (NIL if there is none)
+    private int used;     // slots [0..used) have been used at least once
+
+    /** Constructs a new list, stored in int arrays on the heap. */
+    public BlockArrayList() {
+        this(new HeapBlockStorage(16));
+    }
+
+    /** Constructs a new list, stored in the given (empty) storage. */
+    public BlockArrayList(BlockStorage storage) {
+        this.storage = storage;
+        first = NIL;
+        last = NIL;
+        unused = NIL;
+    }
+
+    /** Returns the slot of the first element (NIL if the list is empty). */
+    public int getFirst() {
+        return first;
+    }
+
+    /** Returns the slot of the last element (NIL if the list is empty). */
+    public int getLast() {
+        return last;
+    }
+
+    /** Returns the number of elements in this list. */
+    public int getSize() {
+        return size;
+    }
+
+    /** Returns the storage of this list. */
+    public BlockStorage getStorage() {
+        return storage;
+    }
+
+    /** Returns the slot of the element that follows the element in the given slot (NIL if it is the last). */
+    public int next(int slot) {
+        return storage.getNext(slot);
+    }
+
+    /** Returns the slot of the element that precedes the element in the given slot (NIL if it is the first). */
+    public int prev(int slot) {
+        return storage.getPrev(slot);
+    }
+
+    /** Returns the base address of the block in the given slot. */
+    public int getBase(int slot) {
+        return storage.getBase(slot);
+    }
+
+    /** Returns the length of the block in the given slot. */
+    public int getLength(int slot) {
+        return storage.getLength(slot);
+    }
+
+    /** Sets the base address of the block in the given slot. */
+    public void setBase(int slot, int baseAddress) {
+        storage.setBase(slot, baseAddress);
+    }
+
+    /** Sets the length of the block in the given slot. */
+    public void setLength(int slot, int blockLength) {
+        storage.setLength(slot, blockLength);
+    }
+
+    /**
+     * Gets the slot of the element located at the given index in this list.
+     * @param index the index [0..size-1]
+     * @throws IllegalArgumentException if index is out of range
+     */
+    public int getSlot(int index) {
+        if (index < 0 || index >= size) {
+            throw new IllegalArgumentException("index must be between 0 and size");
+        }
+        int slot;
+        if (index < size / 2) {
+            slot = first;
+            for (int i = 0; i < index; i++) {
+                slot = storage.getNext(slot);
+            }
+        } else {
+            slot = last;
+            for (int i = size - 1; i > index; i--) {
+                slot = storage.getPrev(slot);
+            }
+        }
+        return slot;
+    }
+
+    /**
+     * Inserts the block (baseAddress , blockLength) at the given index in this list.
+     * @param index the position in [0..size]
+     * @throws IllegalArgumentException if index is out of [0..size]
+     */
+    public void add(int index, int baseAddress, int blockLength) {
+        if (index < 0 || index > size) {
+            throw new IllegalArgumentException("index must be between 0 and size");
+        }
+        addAfter((index == 0) ? NIL : getSlot(index - 1), baseAddress, blockLength);
+    }
+
+    /** Adds the block (baseAddress , blockLength) at the end of this list, and returns its slot. */
+    public int addLast(int baseAddress, int blockLength) {
+        return addAfter(last, baseAddress, blockLength);
+    }
+
+    /** Adds the block (baseAddress , blockLength) at the beginning of this list, and returns its slot. */
+    public int addFirst(int baseAddress, int blockLength) {
+        return addAfter(NIL, baseAddress, blockLength);
+    }
+
+    /**
+     * Inserts the block (baseAddress , blockLength) right after the element in the given slot
+     * (or at the beginning of the list, if slot is NIL), and returns the slot of the new element.
+     */
+    public int addAfter(int slot, int baseAddress, int blockLength) {
+        int newSlot = allocateSlot();
+        storage.setBase(newSlot, baseAddress);
+        storage.setLength(newSlot, blockLength);
+        int following = (slot == NIL) ? first : storage.getNext(slot);
+        storage.setPrev(newSlot, slot);
+        storage.setNext(newSlot, following);
+        if (slot == NIL) {
+            first = newSlot;
+        } else {
+            storage.setNext(slot, newSlot);
+        }
+        if (following == NIL) {
+            last = newSlot;
+        } else {
+            storage.setPrev(following, newSlot);
+        }
+        size++;
+        return newSlot;
+    }
+
+    /** Returns the index of the first block (baseAddress , blockLength) in this list, or -1 if not found. */
+    public int indexOf(int baseAddress, int blockLength) {
+        int i = 0;
+        for (int slot = first; slot != NIL; slot = storage.getNext(slot)) {
+            if (storage.getBase(slot) == baseAddress && storage.getLength(slot) == blockLength) {
+                return i;
+            }
+            i++;
+        }
+        return -1;
+    }
+
+    /** Removes the element in the given slot from this list, in O(1) time. The slot becomes unused. */
+    public void removeSlot(int slot) {
+        int before = storage.getPrev(slot);
+        int after = storage.getNext(slot);
+        if (before == NIL) {
+            first = after;
+        } else {
+            storage.setNext(before, after);
+        }
+        if (after == NIL) {
+            last = before;
+        } else {
+            storage.setPrev(after, before);
+        }
+        size--;
+        storage.setNext(slot, unused);
+        unused = slot;
+    }
+
+    /**
+     * Removes the element at the given index.
+     * @param index the index [0..size-1]
+     * @throws IllegalArgumentException if index is out of range
+     */
+    public void removeAt(int index) {
+        removeSlot(getSlot(index));
+    }
+
+    /**
+     * Removes the first block (baseAddress , blockLength) from this list.
+     * If not found => throw IAE("index must be between 0 and size")
+     */
+    public void remove(int baseAddress, int blockLength) {
+        int index = indexOf(baseAddress, blockLength);
+        if (index == -1) {
+            throw new IllegalArgumentException("index must be between 0 and size");
+        }
+        removeAt(index);
+    }
+
+    /** Sorts this list by base address (merge sort on the next links, like LinkedList.sortByBaseAddress). */
+    public void sortByBaseAddress() {
+        if (size < 2) {
+            return;
+        }
+        first = mergeSort(first, size);
+        storage.setPrev(first, NIL);
+        int slot = first;
+        while (storage.getNext(slot) != NIL) {
+            storage.setPrev(storage.getNext(slot), slot);
+            slot = storage.getNext(slot);
+        }
+        last = slot;
+    }
+
+    // Sorts the chain of 'count' elements that starts at 'head', and returns its new head.
+    // The last element of the chain must be followed by NIL.
+    private int mergeSort(int head, int count) {
+        if (count < 2) {
+            return head;
+        }
+        int half = count / 2;
+        int middle = head;
+        for (int i = 1; i < half; i++) {
+            middle = storage.getNext(middle);
+        }
+        int second = storage.getNext(middle);
+        storage.setNext(middle, NIL);
+        return merge(mergeSort(head, half), mergeSort(second, count - half));
+    }
+
+    // Merges two sorted chains into one sorted chain, and returns its head
+    private int merge(int a, int b) {
+        int head = NIL;
+        int tail = NIL;
+        while (a != NIL && b != NIL) {
+            int smaller;
+            if (storage.getBase(a) <= storage.getBase(b)) {
+                smaller = a;
+                a = storage.getNext(a);
+            } else {
+                smaller = b;
+                b = storage.getNext(b);
+            }
+            if (tail == NIL) {
+                head = smaller;
+            } else {
+                storage.setNext(tail, smaller);
+            }
+            tail = smaller;
+        }
+        int rest = (a != NIL) ? a : b;
+        if (tail == NIL) {
+            return rest;
+        }
+        storage.setNext(tail, rest);
+        return head;
+    }
+
+    /** Merges every run of consecutive elements whose blocks are contiguous in memory, in one pass. */
+    public void mergeAdjacentBlocks() {
+        int slot = first;
+        while (slot != NIL && storage.getNext(slot) != NIL) {
+            int following = storage.getNext(slot);
+            if (storage.getBase(slot) + storage.getLength(slot) == storage.getBase(following)) {
+                storage.setLength(slot, storage.getLength(slot) + storage.getLength(following));
+                removeSlot(following);
+            } else {
+                slot = following;
+            }
+        }
+    }
+
+    /**
+     * Returns the blocks of this list in the same format as LinkedList.toString:
+     * "(baseAddress , length) " per block, or "" if the list is empty.
+     */
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int slot = first; slot != NIL; slot = storage.getNext(slot)) {
+            sb.append("(")
+              .append(storage.getBase(slot))
+              .append(" , ")
+              .append(storage.getLength(slot))
+              .append(") ");
+        }
+        return sb.toString();
+    }
+
+    // Returns an unused slot, growing the arrays if needed
+    private int allocateSlot() {
+        if (unused != NIL) {
+            int slot = unused;
+            unused = storage.getNext(slot);
+            return slot;
+        }
+        if (used == storage.capacity()) {
+            storage.grow(Math.max(16, 2 * storage.capacity()));
+        }
+        return used++;
+    }
+}
@@ -0,0 +1,148 @@
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A pool of identically-sized blocks, carved from one region allocated in a MemorySpace.
+ * The free blocks of the pool are kept in a lock-free (Treiber) stack, so that threads can
+ * allocate and free blocks concurrently without taking any lock.
+ *
+ * The top of the stack is a single long that packs the index of the top block (low 32 bits)
+ * with a stamp (high 32 bits) that is incremented on every change. A compare-and-set of the top
+ * therefore fails if the top was popped and pushed back in between (the ABA problem), even
+ * though the same block is on top again.
+ */
+public class BlockPool implements MemoryAllocator {
+
+    private static final int NIL = -1;     // the index that refers to no block
+
+    private final int baseAddress;         // base address of the region of the pool
+    private final int blockSize;           // length of every block of the pool
+    private final int blockCount;          // number of blocks in the pool
+    private final AtomicLong top;          // stamp << 32 | index of the block on top of the stack
+    private final AtomicIntegerArray next; // index of the block below each free block in the stack
+    private final AtomicIntegerArray allocated; // 1 if the block is allocated, 0 if it is free
+
+    /**
+     * Constructs a pool of blockCount blocks of length blockSize, whose region is allocated
+     * in the given memory space. The pool does not synchronize on the memory space: the region
+     * is allocated once, by the constructor.
+     * @throws IllegalArgumentException if the memory space has no room for the region
+     */
+    public BlockPool(MemorySpace memory, int blockSize, int blockCount) {
+        if (blockSize <= 0 || blockCount <= 0) {
+            throw new IllegalArgumentException("blockSize and blockCount must be positive");
+        }
+        int address = memory.malloc(Math.multiplyExact(blockSize, blockCount));
+        if (address == -1) {
+            throw new IllegalArgumentException("the memory space has no room for the pool");
+        }
+        this.baseAddress = address;
+        this.blockSize = blockSize;
+        this.blockCount = blockCount;
+        next = new AtomicIntegerArray(blockCount);
+        allocated = new AtomicIntegerArray(blockCount);
+        // Initially every block is free, and block 0 is on top
+        for (int i = 0; i < blockCount; i++) {
+            next.set(i, (i == blockCount - 1) ? NIL : i + 1);
+        }
+        top = new AtomicLong(pack(0, 0));
+    }
+
+    /** Returns the base address of the region of this pool. */
+    public int getBaseAddress() {
+        return baseAddress;
+    }
+
+    /** Returns the length of the blocks of this pool. */
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    /** Returns the number of blocks of this pool. */
+    public int getBlockCount() {
+        return blockCount;
+    }
+
+    /**
+     * Allocates a block of the pool, if 'length' is between 1 and the block size.
+     * Returns the base address of the block, or -1 if the length doesn't fit or the pool is empty.
+     */
+    public int malloc(int length) {
+        if (length <= 0 || length > blockSize) {
+            return -1;
+        }
+        while (true) {
+            long current = top.get();
+            int index = indexOf(current);
+            if (index == NIL) {
+                return -1;
+            }
+            if (top.compareAndSet(current, pack(stampOf(current) + 1, next.get(index)))) {
+                allocated.set(index, 1);
+                return baseAddress + index * blockSize;
+            }
+        }
+    }
+
+    /**
+     * Frees the block whose base address == address.
+     * Does nothing if the address is not the base address of an allocated block of this pool.
+     */
+    public void free(int address) {
+        int offset = address - baseAddress;
+        if (offset < 0 || offset % blockSize != 0 || offset / blockSize >= blockCount) {
+            return;
+        }
+        int index = offset / blockSize;
+        if (!allocated.compareAndSet(index, 1, 0)) {
+            return; // already free
+        }
+        while (true) {
+            long current = top.get();
+            next.set(index, indexOf(current));
+            if (top.compareAndSet(current, pack(stampOf(current) + 1, index))) {
+                return;
+            }
+        }
+    }
+
+    /** Does nothing: the blocks of a pool never need to be merged. */
+    public void defrag() {
+    }
+
+    /**
+     * Returns the free blocks of this pool (from the top of the stack), then "\n", then the
+     * allocated blocks (by address), in the format of MemorySpace.toString.
+     * The result is consistent only if no other thread uses the pool meanwhile.
+     */
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int index = indexOf(top.get()); index != NIL; index = next.get(index)) {
+            appendBlock(sb, index);
+        }
+        sb.append("\n");
+        for (int index = 0; index < blockCount; index++) {
+            if (allocated.get(index) == 1) {
+                appendBlock(sb, index);
+            }
+        }
+        return sb.toString();
+    }
+
+    private void appendBlock(StringBuilder sb, int index) {
+        sb.append("(").append(baseAddress + index * blockSize).append(" , ").append(blockSize).append(") ");
+    }
+
+    // Packs a stamp and a block index into the value of top
+    private static long pack(int stamp, int index) {
+        return ((long) stamp << 32) | (index & 0xFFFFFFFFL);
+    }
+
+    private static int stampOf(long value) {
+        return (int) (value >>> 32);
+    }
+
+    private static int indexOf(long value) {
+        return (int) value;
+    }
+}
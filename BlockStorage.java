@@ -0,0 +1,28 @@
+/**
+ * The storage of a BlockArrayList: four int fields (base address, length, next slot and
+ * previous slot) for each slot in [0..capacity). Implementations differ in where the ints live.
+ */
+public interface BlockStorage {
+
+    /** Returns the number of slots. */
+    int capacity();
+
+    /** Grows the storage to the given number of slots, keeping the contents of the existing slots. */
+    void grow(int capacity);
+
+    int getBase(int slot);
+
+    int getLength(int slot);
+
+    int getNext(int slot);
+
+    int getPrev(int slot);
+
+    void setBase(int slot, int value);
+
+    void setLength(int slot, int value);
+
+    void setNext(int slot, int value);
+
+    void setPrev(int slot, int value);
+}
@@ -0,0 +1,154 @@
+/**
+ * A managed memory space that allocates memory with a binary buddy system.
+ * Every block has a power-of-two length 2^k (its order is k), and its base address is a
+ * multiple of its length. A malloc takes a free block of the smallest order that can hold
+ * the request, splitting a larger free block in halves if needed; the unused halves ("buddies")
+ * stay free. The buddy of the block of order k at address a is at address a ^ 2^k, so a freed
+ * block is merged with its buddy, if it is free, in O(1), and so on up the orders.
+ *
+ * Both malloc and free take O(log maxSize) time, but every block is rounded up to a power of
+ * two, which wastes up to half of it (internal fragmentation). The memory [0, maxSize) is
+ * initially split into the power-of-two blocks of the binary representation of maxSize.
+ */
+public class BuddyMemorySpace implements InspectableAllocator {
+
+    private static final int ORDERS = 31; // orders 0..30 (blocks of 1 to 2^30 words)
+
+    private final int maxSize;
+    private final BlockArrayList[] freeLists;   // freeLists[k] holds the free blocks of order k
+    private final IntIntMap freeOrder;          // base address -> order, of each free block
+    private final IntIntMap freeSlot;           // base address -> slot in its free list, of each free block
+    private final BlockArrayList allocatedList; // allocated blocks, in allocation order
+    private final IntIntMap allocatedSlot;      // base address -> slot in allocatedList
+    private int nonEmpty;                       // bit k is set iff freeLists[k] is not empty
+
+    /** Constructs a new buddy memory space of a given maximal size. */
+    public BuddyMemorySpace(int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("maxSize must not be negative");
+        }
+        this.maxSize = maxSize;
+        freeLists = new BlockArrayList[ORDERS];
+        for (int k = 0; k < ORDERS; k++) {
+            freeLists[k] = new BlockArrayList();
+        }
+        freeOrder = new IntIntMap();
+        freeSlot = new IntIntMap();
+        allocatedList = new BlockArrayList();
+        allocatedSlot = new IntIntMap();
+        // entire memory is initially free, in the blocks of the binary representation of maxSize
+        int address = 0;
+        for (int k = ORDERS - 1; k >= 0; k--) {
+            if ((maxSize & (1 << k)) != 0) {
+                addFree(address, k);
+                address += 1 << k;
+            }
+        }
+    }
+
+    /** Returns the order of the smallest block that can hold 'length' words (length must be positive). */
+    static int orderOf(int length) {
+        return (length == 1) ? 0 : 32 - Integer.numberOfLeadingZeros(length - 1);
+    }
+
+    /**
+     * Allocates a block of the smallest power-of-two length that can hold 'length' words.
+     * Returns the base address of the allocated block, or -1 if there is no room (or length is not positive).
+     */
+    public int malloc(int length) {
+        if (length <= 0 || length > 1 << (ORDERS - 1)) {
+            return -1;
+        }
+        int k = orderOf(length);
+        int candidates = nonEmpty & (-1 << k);
+        if (candidates == 0) {
+            return -1;
+        }
+        int j = Integer.numberOfTrailingZeros(candidates);
+        int address = freeLists[j].getBase(freeLists[j].getFirst());
+        removeFree(address, j);
+        // split the block until it has order k, keeping the upper halves free
+        while (j > k) {
+            j--;
+            addFree(address + (1 << j), j);
+        }
+        allocatedSlot.put(address, allocatedList.addLast(address, 1 << k));
+        return address;
+    }
+
+    /**
+     * Frees the block whose base address == address, and merges it with its buddy, as long as the buddy is free.
+     * Does nothing if no block is allocated at this address.
+     * @throws IllegalArgumentException if no block is allocated (see MemorySpace.free)
+     */
+    public void free(int address) {
+        if (allocatedList.getSize() == 0) {
+            throw new IllegalArgumentException("index must be between 0 and size");
+        }
+        int slot = allocatedSlot.remove(address, BlockArrayList.NIL);
+        if (slot == BlockArrayList.NIL) {
+            return;
+        }
+        int k = orderOf(allocatedList.getLength(slot));
+        allocatedList.removeSlot(slot);
+        while (k < ORDERS - 1) {
+            int buddy = address ^ (1 << k);
+            if (freeOrder.get(buddy, -1) != k || (long) buddy + (1 << k) > maxSize) {
+                break;
+            }
+            removeFree(buddy, k);
+            address = Math.min(address, buddy);
+            k++;
+        }
+        addFree(address, k);
+    }
+
+    /** Does nothing: free blocks are merged with their buddies as soon as they are freed. */
+    public void defrag() {
+    }
+
+    /** Returns an immutable snapshot of the free blocks and the allocated blocks, in the order of toString. */
+    public MemorySpaceSnapshot snapshot() {
+        int freeCount = 0;
+        for (BlockArrayList freeList : freeLists) {
+            freeCount += freeList.getSize();
+        }
+        int[] freeBases = new int[freeCount];
+        int[] freeLengths = new int[freeCount];
+        int i = 0;
+        for (BlockArrayList freeList : freeLists) {
+            i = MemorySpaceSnapshot.copy(freeList, freeBases, freeLengths, i);
+        }
+        int[] allocatedBases = new int[allocatedList.getSize()];
+        int[] allocatedLengths = new int[allocatedList.getSize()];
+        MemorySpaceSnapshot.copy(allocatedList, allocatedBases, allocatedLengths, 0);
+        return new MemorySpaceSnapshot(freeBases, freeLengths, allocatedBases, allocatedLengths);
+    }
+
+    /**
+     * Returns the free blocks (by increasing order, and in each order from the oldest),
+     * then "\n", then the allocated blocks with their power-of-two lengths,
+     * in the format of MemorySpace.toString.
+     */
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (BlockArrayList freeList : freeLists) {
+            sb.append(freeList.toString());
+        }
+        return sb + "\n" + allocatedList.toString();
+    }
+
+    private void addFree(int address, int k) {
+        freeSlot.put(address, freeLists[k].addLast(address, 1 << k));
+        freeOrder.put(address, k);
+        nonEmpty |= 1 << k;
+    }
+
+    private void removeFree(int address, int k) {
+        freeLists[k].removeSlot(freeSlot.remove(address, BlockArrayList.NIL));
+        freeOrder.remove(address, -1);
+        if (freeLists[k].getSize() == 0) {
+            nonEmpty &= ~(1 << k);
+        }
+    }
+}
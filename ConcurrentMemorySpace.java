@@ -0,0 +1,218 @@
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A thread-safe managed memory space, whose address range is partitioned into arenas.
+ * Each arena is a MemorySpace that manages its own part of the range, with its own free and
+ * allocated lists and its own read-write lock. A thread allocates from its home arena (assigned
+ * round-robin to the threads, in the order of their first malloc), so threads with different home arenas don't contend; only when the home arena can't satisfy
+ * a request does the thread fall back to the other arenas, one after the other.
+ * An address is freed in the arena whose range contains it, which is found in O(1).
+ * Mallocs, frees and defrags take the write lock of their arena; snapshots only take read
+ * locks, so several monitoring threads can inspect the memory space at the same time.
+ */
+public class ConcurrentMemorySpace implements InspectableAllocator {
+
+    private final MemorySpace[] arenas;   // arena i manages [i * arenaSize, (i + 1) * arenaSize)
+    private final ReentrantReadWriteLock[] locks; // locks[i] guards arenas[i]
+    private final int arenaSize;          // size of each arena (the last one also gets the remainder)
+    private final int maxSize;
+    private final AtomicInteger nextHome;             // the home arena of the next new thread (modulo arenas.length)
+    private final ThreadLocal<Integer> homeArena;     // the home arena of each thread
+
+    /**
+     * Constructs a new managed memory space of a given maximal size, partitioned into the
+     * given number of arenas, that allocate memory using the given policy.
+     */
+    public ConcurrentMemorySpace(int maxSize, int arenaCount, AllocationPolicy policy) {
+        if (arenaCount < 1 || arenaCount > maxSize) {
+            throw new IllegalArgumentException("arenaCount must be between 1 and maxSize");
+        }
+        this.maxSize = maxSize;
+        arenaSize = maxSize / arenaCount;
+        arenas = new MemorySpace[arenaCount];
+        locks = new ReentrantReadWriteLock[arenaCount];
+        for (int i = 0; i < arenaCount; i++) {
+            int size = (i == arenaCount - 1) ? maxSize - i * arenaSize : arenaSize;
+            arenas[i] = new MemorySpace(i * arenaSize, size, policy);
+            locks[i] = new ReentrantReadWriteLock();
+        }
+        nextHome = new AtomicInteger();
+        homeArena = ThreadLocal.withInitial(() -> Math.floorMod(nextHome.getAndIncrement(), arenas.length));
+    }
+
+    /**
+     * Constructs a new first-fit managed memory space of a given maximal size,
+     * with one arena per available processor.
+     */
+    public ConcurrentMemorySpace(int maxSize) {
+        this(maxSize, Math.min(maxSize, Runtime.getRuntime().availableProcessors()), AllocationPolicy.FIRST_FIT);
+    }
+
+    /** Returns the number of arenas. */
+    public int getArenaCount() {
+        return arenas.length;
+    }
+
+    /** Returns the home arena of the calling thread (see the class comment). */
+    public int getHomeArena() {
+        return homeArena.get();
+    }
+
+    /**
+     * Allocates a memory block of length 'length', from the home arena of the calling thread,
+     * or if it has no room, from the first other arena that has.
+     * Returns the base address of the allocated block, or -1 if no arena has room.
+     */
+    public int malloc(int length) {
+        int home = homeArena.get();
+        for (int i = 0; i < arenas.length; i++) {
+            int arena = (home + i) % arenas.length;
+            int address = malloc(arena, length);
+            if (address != -1) {
+                return address;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Frees the memory block whose base address == address, in the arena that contains it.
+     * Does nothing if the address is out of the range of this memory space.
+     * @throws IllegalArgumentException if nothing is allocated in that arena (see MemorySpace.free)
+     */
+    public void free(int address) {
+        if (address < 0 || address >= maxSize) {
+            return;
+        }
+        int arena = arenaOf(address);
+        locks[arena].writeLock().lock();
+        try {
+            arenas[arena].free(address);
+        } finally {
+            locks[arena].writeLock().unlock();
+        }
+    }
+
+    /**
+     * Allocates a block for each of the given lengths, and returns their base addresses
+     * (-1 for each length that can't be allocated). The whole batch is allocated from the home
+     * arena of the calling thread under a single lock acquisition (see MemorySpace.mallocBatch);
+     * only the lengths that don't fit there fall back to the other arenas, one by one.
+     */
+    public int[] mallocBatch(int[] lengths) {
+        int home = homeArena.get();
+        int[] addresses;
+        locks[home].writeLock().lock();
+        try {
+            addresses = arenas[home].mallocBatch(lengths);
+        } finally {
+            locks[home].writeLock().unlock();
+        }
+        for (int i = 0; i < lengths.length; i++) {
+            for (int j = 1; addresses[i] == -1 && j < arenas.length; j++) {
+                addresses[i] = malloc((home + j) % arenas.length, lengths[i]);
+            }
+        }
+        return addresses;
+    }
+
+    /**
+     * Frees the blocks whose base addresses are given. The addresses are first grouped by arena
+     * (by their ranges, in one pass), then the lock of each arena is acquired once, and the addresses
+     * of that arena are freed under it, in their order in the batch. This takes O(arenas + n) time.
+     * Addresses out of the range of this memory space are ignored.
+     * @throws IllegalArgumentException if nothing is allocated in an arena when one of its frees is reached
+     */
+    public void freeBatch(int[] addresses) {
+        // start[a] .. start[a + 1] - 1 are the positions of the addresses of arena a in 'grouped'
+        int[] start = new int[arenas.length + 1];
+        for (int address : addresses) {
+            if (address >= 0 && address < maxSize) {
+                start[arenaOf(address) + 1]++;
+            }
+        }
+        for (int arena = 0; arena < arenas.length; arena++) {
+            start[arena + 1] += start[arena];
+        }
+        int[] grouped = new int[start[arenas.length]];
+        int[] next = java.util.Arrays.copyOf(start, arenas.length);
+        for (int address : addresses) {
+            if (address >= 0 && address < maxSize) {
+                grouped[next[arenaOf(address)]++] = address;
+            }
+        }
+        for (int arena = 0; arena < arenas.length; arena++) {
+            if (start[arena] == start[arena + 1]) {
+                continue;
+            }
+            locks[arena].writeLock().lock();
+            try {
+                for (int i = start[arena]; i < start[arena + 1]; i++) {
+                    arenas[arena].free(grouped[i]);
+                }
+            } finally {
+                locks[arena].writeLock().unlock();
+            }
+        }
+    }
+
+    /** Defragments the free list of each arena (blocks of different arenas are never merged). */
+    public void defrag() {
+        for (int i = 0; i < arenas.length; i++) {
+            locks[i].writeLock().lock();
+            try {
+                arenas[i].defrag();
+            } finally {
+                locks[i].writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Returns a consistent snapshot of all the arenas: their free blocks, arena after arena,
+     * and their allocated blocks, arena after arena. The read locks of all the arenas are held
+     * together while the snapshot is taken, so it reflects a single moment; mallocs and frees
+     * wait only while the arenas that changed since the last snapshot are copied.
+     */
+    public MemorySpaceSnapshot snapshot() {
+        MemorySpaceSnapshot[] snapshots = new MemorySpaceSnapshot[arenas.length];
+        int locked = 0;
+        try {
+            for (; locked < arenas.length; locked++) {
+                locks[locked].readLock().lock();
+            }
+            for (int i = 0; i < arenas.length; i++) {
+                snapshots[i] = arenas[i].snapshot();
+            }
+        } finally {
+            for (int i = 0; i < locked; i++) {
+                locks[i].readLock().unlock();
+            }
+        }
+        return MemorySpaceSnapshot.concat(snapshots);
+    }
+
+    /**
+     * Returns the free blocks of all the arenas on the first line, and their allocated blocks
+     * on the second line, arena after arena, in the format of MemorySpace.toString.
+     */
+    public String toString() {
+        return snapshot().toString();
+    }
+
+    // Allocates from the given arena, under its lock
+    private int malloc(int arena, int length) {
+        locks[arena].writeLock().lock();
+        try {
+            return arenas[arena].malloc(length);
+        } finally {
+            locks[arena].writeLock().unlock();
+        }
+    }
+
+    // Returns the arena whose range contains the given (valid) address
+    private int arenaOf(int address) {
+        return Math.min(address / arenaSize, arenas.length - 1);
+    }
+}
@@ -0,0 +1,343 @@
+import java.util.IdentityHashMap;
+import java.util.Random;
+
+/**
+ * A balanced search tree (a treap) over the nodes of a free list.
+ * The in-order sequence of the tree is the order of the nodes in the list, and each
+ * tree entry caches the maximal block length found in its subtree. This lets the
+ * first node (in list order) whose block is long enough be found in O(log n),
+ * instead of scanning the list from its start.
+ */
+public class FreeBlockTree {
+
+    private Entry root;                              // root of the tree (null if empty)
+    private final IdentityHashMap<Node, Entry> entries; // list node -> its tree entry
+    private final Random random;                     // source of the heap priorities
+    private int trackedAlignment;                    // power-of-two alignment whose fits are cached (0 = none)
+
+    /** A tree entry, pointing at one node of the indexed list. */
+    private static class Entry {
+        Node node;        // the list node that this entry indexes
+        Entry left;       // entries before this one in list order
+        Entry right;      // entries after this one in list order
+        Entry parent;
+        int priority;     // heap priority, keeps the tree balanced
+        int maxLength;    // maximal block length in the subtree rooted at this entry
+        int maxAligned;   // maximal aligned length (see alignedLength) in the subtree, for trackedAlignment
+
+        Entry(Node node, int priority) {
+            this.node = node;
+            this.priority = priority;
+            this.maxLength = node.block.length;
+        }
+    }
+
+    /** Constructs an empty index. */
+    public FreeBlockTree() {
+        entries = new IdentityHashMap<>();
+        random = new Random(0x5EED);
+    }
+
+    /** Returns the number of indexed nodes. */
+    public int getSize() {
+        return entries.size();
+    }
+
+    /** Rebuilds this index from scratch, so that it indexes all the nodes of the given list, in order. */
+    public void build(LinkedList list) {
+        entries.clear();
+        root = null;
+        // Builds the treap in linear time, keeping its right spine on a stack
+        Entry[] spine = new Entry[list.getSize()];
+        int top = 0;
+        for (Node current = list.getFirst(); current != null; current = current.next) {
+            Entry entry = newEntry(current);
+            Entry lastPopped = null;
+            while (top > 0 && spine[top - 1].priority < entry.priority) {
+                lastPopped = spine[--top];
+            }
+            entry.left = lastPopped;
+            if (lastPopped != null) {
+                lastPopped.parent = entry;
+            }
+            if (top > 0) {
+                spine[top - 1].right = entry;
+                entry.parent = spine[top - 1];
+            } else {
+                root = entry;
+            }
+            spine[top++] = entry;
+        }
+        pullAll(root);
+    }
+
+    /** Indexes the given node, which was added at the end of the list. */
+    public void addLast(Node node) {
+        Entry entry = newEntry(node);
+        if (root == null) {
+            root = entry;
+            return;
+        }
+        Entry parent = root;
+        while (parent.right != null) {
+            parent = parent.right;
+        }
+        parent.right = entry;
+        entry.parent = parent;
+        siftUp(entry);
+    }
+
+    /**
+     * Indexes the given node, which was inserted into the list right after 'prev'.
+     * If prev is null, the node was inserted at the beginning of the list.
+     */
+    public void addAfter(Node prev, Node node) {
+        Entry entry = newEntry(node);
+        if (root == null) {
+            root = entry;
+            return;
+        }
+        Entry parent;
+        if (prev == null) {
+            parent = root;
+            while (parent.left != null) {
+                parent = parent.left;
+            }
+            parent.left = entry;
+        } else {
+            parent = entries.get(prev);
+            if (parent.right == null) {
+                parent.right = entry;
+            } else {
+                parent = parent.right;
+                while (parent.left != null) {
+                    parent = parent.left;
+                }
+                parent.left = entry;
+            }
+        }
+        entry.parent = parent;
+        siftUp(entry);
+    }
+
+    /** Stops indexing the given node, which was removed from the list. */
+    public void remove(Node node) {
+        Entry entry = entries.remove(node);
+        if (entry == null) {
+            return;
+        }
+        // Rotates the entry down until it is a leaf, then detaches it
+        while (entry.left != null || entry.right != null) {
+            Entry child;
+            if (entry.left == null) {
+                child = entry.right;
+            } else if (entry.right == null) {
+                child = entry.left;
+            } else {
+                child = (entry.left.priority > entry.right.priority) ? entry.left : entry.right;
+            }
+            rotateUp(child);
+        }
+        Entry parent = entry.parent;
+        if (parent == null) {
+            root = null;
+        } else {
+            if (parent.left == entry) {
+                parent.left = null;
+            } else {
+                parent.right = null;
+            }
+            pullToRoot(parent);
+        }
+        entry.parent = null;
+    }
+
+    /** Must be called after the length of the block of the given (indexed) node has changed. */
+    public void update(Node node) {
+        Entry entry = entries.get(node);
+        if (entry != null) {
+            pullToRoot(entry);
+        }
+    }
+
+    /**
+     * Returns the first node, in list order, whose block length is at least 'length',
+     * or null if there is no such node.
+     */
+    public Node firstFit(int length) {
+        if (root == null || root.maxLength < length) {
+            return null;
+        }
+        Entry current = root;
+        while (true) {
+            if (current.left != null && current.left.maxLength >= length) {
+                current = current.left;
+            } else if (current.node.block.length >= length) {
+                return current.node;
+            } else {
+                current = current.right;
+            }
+        }
+    }
+
+    /**
+     * Returns the first node, in list order, whose block can hold a block of length 'length'
+     * whose base address is a multiple of 'alignment', or null if there is no such node.
+     * If alignment is a power of two, the tree caches, for the last such alignment requested, the
+     * maximal aligned length of each subtree, so the node is found in O(log n) time, like firstFit.
+     * Requesting another power-of-two alignment recomputes these lengths once, in O(n) time.
+     * For other alignments, the search stops at the first block of length >= length + alignment - 1,
+     * which surely fits and is found in O(log n) time; before it, the blocks whose length is in
+     * [length, length + alignment - 1) are probed one by one.
+     */
+    public Node alignedFirstFit(int length, int alignment) {
+        if (Integer.bitCount(alignment) == 1) {
+            if (alignment != trackedAlignment) {
+                trackedAlignment = alignment;
+                pullAll(root);
+            }
+            if (root == null || root.maxAligned < length) {
+                return null;
+            }
+            Entry current = root;
+            while (true) {
+                if (current.left != null && current.left.maxAligned >= length) {
+                    current = current.left;
+                } else if (alignedLength(current.node.block, alignment) >= length) {
+                    return current.node;
+                } else {
+                    current = current.right;
+                }
+            }
+        }
+        long bound = (long) length + alignment - 1;
+        Node guaranteed = (bound > Integer.MAX_VALUE) ? null : firstFit((int) bound);
+        return alignedFirstFit(root, length, alignment, guaranteed);
+    }
+
+    // Returns the first node of the given subtree that can hold the aligned block, or null.
+    // The traversal ends at the guaranteed node, so no node after it is visited.
+    private static Node alignedFirstFit(Entry entry, int length, int alignment, Node guaranteed) {
+        if (entry == null || entry.maxLength < length) {
+            return null;
+        }
+        Node result = alignedFirstFit(entry.left, length, alignment, guaranteed);
+        if (result != null) {
+            return result;
+        }
+        if (entry.node == guaranteed || entry.node.block.fitsAligned(length, alignment)) {
+            return entry.node;
+        }
+        return alignedFirstFit(entry.right, length, alignment, guaranteed);
+    }
+
+    /**
+     * Returns the last node whose block starts before the given address, or null if there is none.
+     * This is meaningful only if the indexed list is sorted by base address.
+     */
+    public Node lastBefore(int address) {
+        Node result = null;
+        Entry current = root;
+        while (current != null) {
+            if (current.node.block.baseAddress < address) {
+                result = current.node;
+                current = current.right;
+            } else {
+                current = current.left;
+            }
+        }
+        return result;
+    }
+
+    // Creates and registers the entry of the given node
+    private Entry newEntry(Node node) {
+        Entry entry = new Entry(node, random.nextInt());
+        entries.put(node, entry);
+        pull(entry);
+        return entry;
+    }
+
+    // Rotates the given entry up while its priority is higher than its parent's,
+    // then refreshes the cached lengths along the path to the root.
+    private void siftUp(Entry entry) {
+        while (entry.parent != null && entry.parent.priority < entry.priority) {
+            rotateUp(entry);
+        }
+        pullToRoot(entry);
+    }
+
+    // Rotates the given entry above its parent, keeping the in-order sequence
+    private void rotateUp(Entry entry) {
+        Entry parent = entry.parent;
+        Entry grandParent = parent.parent;
+        if (parent.left == entry) {
+            parent.left = entry.right;
+            if (entry.right != null) {
+                entry.right.parent = parent;
+            }
+            entry.right = parent;
+        } else {
+            parent.right = entry.left;
+            if (entry.left != null) {
+                entry.left.parent = parent;
+            }
+            entry.left = parent;
+        }
+        parent.parent = entry;
+        entry.parent = grandParent;
+        if (grandParent == null) {
+            root = entry;
+        } else if (grandParent.left == parent) {
+            grandParent.left = entry;
+        } else {
+            grandParent.right = entry;
+        }
+        pull(parent);
+        pull(entry);
+    }
+
+    // Returns the length of the longest block whose base address is a multiple of 'alignment'
+    // that fits in the given block (negative if there is none)
+    private static int alignedLength(MemoryBlock block, int alignment) {
+        return block.length - block.alignmentSlack(alignment);
+    }
+
+    // Recomputes the cached maximal lengths of the given entry from its children
+    private void pull(Entry entry) {
+        int max = entry.node.block.length;
+        if (entry.left != null && entry.left.maxLength > max) {
+            max = entry.left.maxLength;
+        }
+        if (entry.right != null && entry.right.maxLength > max) {
+            max = entry.right.maxLength;
+        }
+        entry.maxLength = max;
+        if (trackedAlignment != 0) {
+            int maxAligned = alignedLength(entry.node.block, trackedAlignment);
+            if (entry.left != null && entry.left.maxAligned > maxAligned) {
+                maxAligned = entry.left.maxAligned;
+            }
+            if (entry.right != null && entry.right.maxAligned > maxAligned) {
+                maxAligned = entry.right.maxAligned;
+            }
+            entry.maxAligned = maxAligned;
+        }
+    }
+
+    // Recomputes the cached maximal lengths from the given entry up to the root
+    private void pullToRoot(Entry entry) {
+        for (Entry current = entry; current != null; current = current.parent) {
+            pull(current);
+        }
+    }
+
+    // Recomputes the cached maximal lengths of a whole subtree, bottom up
+    private void pullAll(Entry entry) {
+        if (entry == null) {
+            return;
+        }
+        pullAll(entry.left);
+        pullAll(entry.right);
+        pull(entry);
+    }
+}
@@ -0,0 +1,35 @@
+/**
+ * A stable reference to a block allocated in a HandleMemorySpace.
+ * The block may move when the memory space is compacted, but its handle stays the same,
+ * and always knows the current base address of the block.
+ */
+public final class Handle {
+
+    int address;      // current base address of the block (-1 once the block is freed)
+    final int length; // length of the block
+
+    Handle(int address, int length) {
+        this.address = address;
+        this.length = length;
+    }
+
+    /** Returns the current base address of the block, or -1 if the block was freed. */
+    public int getAddress() {
+        return address;
+    }
+
+    /** Returns the length of the block. */
+    public int getLength() {
+        return length;
+    }
+
+    /** Returns true if the block was not freed yet. */
+    public boolean isValid() {
+        return address != -1;
+    }
+
+    /** A textual representation of this handle, for debugging. For example: [(208 , 10)] */
+    public String toString() {
+        return "[(" + address + " , " + length + ")]";
+    }
+}
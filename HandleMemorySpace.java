@@ -0,0 +1,95 @@
+/**
+ * A compacting memory space, whose callers hold handles instead of addresses.
+ * Since every block is reached through its handle, the blocks can be moved: compact() slides all
+ * of them toward the base address and updates their handles, so that the free memory becomes a
+ * single block, which defrag() can't achieve when free blocks are separated by allocated ones.
+ */
+public class HandleMemorySpace {
+
+    private final MemorySpace memory;         // the memory space where the blocks are allocated
+    private final IntMap<Handle> handles;     // base address -> handle, of each allocated block
+    private final RelocationListener updater; // updates the handle table when compact moves a block
+    private int compactions;                  // number of calls to compact
+    private long movedWords;                  // total length of the blocks that compact moved
+
+    /**
+     * Constructs a new compacting memory space of a given maximal size,
+     * that allocates memory using the given policy.
+     */
+    public HandleMemorySpace(int maxSize, AllocationPolicy policy) {
+        memory = new MemorySpace(maxSize, policy);
+        handles = new IntMap<>();
+        updater = (oldAddress, newAddress, length) -> {
+            Handle handle = handles.remove(oldAddress);
+            if (handle != null) {
+                handle.address = newAddress;
+                handles.put(newAddress, handle);
+            }
+            movedWords += length;
+        };
+    }
+
+    /**
+     * Allocates a memory block of length 'length' (see MemorySpace.malloc),
+     * and returns its handle, or null if it can't be allocated (or length is not positive).
+     */
+    public Handle malloc(int length) {
+        if (length <= 0) {
+            return null;
+        }
+        int address = memory.malloc(length);
+        if (address == -1) {
+            return null;
+        }
+        Handle handle = new Handle(address, length);
+        handles.put(address, handle);
+        return handle;
+    }
+
+    /** Frees the block of the given handle, which becomes invalid. Does nothing if it is already invalid. */
+    public void free(Handle handle) {
+        if (handle == null || !handle.isValid() || handles.get(handle.address) != handle) {
+            return;
+        }
+        handles.remove(handle.address);
+        memory.free(handle.address);
+        handle.address = -1;
+    }
+
+    /** Merges the adjacent free blocks (see MemorySpace.defrag). No block moves. */
+    public void defrag() {
+        memory.defrag();
+    }
+
+    /**
+     * Slides all the allocated blocks toward the base address, updating their handles,
+     * so that the free memory becomes a single block (see MemorySpace.compact).
+     */
+    public void compact() {
+        compactions++;
+        memory.compact(updater);
+    }
+
+    /** Returns the number of times the memory was compacted. */
+    public int getCompactionCount() {
+        return compactions;
+    }
+
+    /** Returns the total length of the blocks moved by all the compactions. */
+    public long getMovedWords() {
+        return movedWords;
+    }
+
+    /**
+     * Returns an immutable snapshot of the memory space where the blocks are allocated.
+     * The memory space itself is not exposed: a block allocated in it directly would have no handle.
+     */
+    public MemorySpaceSnapshot snapshot() {
+        return memory.snapshot();
+    }
+
+    /** Returns the free blocks, then "\n", then the allocated blocks (see MemorySpace.toString). */
+    public String toString() {
+        return memory.toString();
+    }
+}
@@ -0,0 +1,59 @@
+/** A BlockStorage that keeps each field in its own int array on the heap. */
+public class HeapBlockStorage implements BlockStorage {
+
+    private int[] base;   // base address of the block in each slot
+    private int[] length; // length of the block in each slot
+    private int[] next;   // next slot of each slot
+    private int[] prev;   // previous slot of each slot
+
+    /** Constructs a storage of the given number of slots. */
+    public HeapBlockStorage(int capacity) {
+        base = new int[capacity];
+        length = new int[capacity];
+        next = new int[capacity];
+        prev = new int[capacity];
+    }
+
+    public int capacity() {
+        return base.length;
+    }
+
+    public void grow(int capacity) {
+        base = java.util.Arrays.copyOf(base, capacity);
+        length = java.util.Arrays.copyOf(length, capacity);
+        next = java.util.Arrays.copyOf(next, capacity);
+        prev = java.util.Arrays.copyOf(prev, capacity);
+    }
+
+    public int getBase(int slot) {
+        return base[slot];
+    }
+
+    public int getLength(int slot) {
+        return length[slot];
+    }
+
+    public int getNext(int slot) {
+        return next[slot];
+    }
+
+    public int getPrev(int slot) {
+        return prev[slot];
+    }
+
+    public void setBase(int slot, int value) {
+        base[slot] = value;
+    }
+
+    public void setLength(int slot, int value) {
+        length[slot] = value;
+    }
+
+    public void setNext(int slot, int value) {
+        next[slot] = value;
+    }
+
+    public void setPrev(int slot, int value) {
+        prev[slot] = value;
+    }
+}
@@ -0,0 +1,10 @@
+/**
+ * A MemoryAllocator whose free and allocated blocks can be copied into an immutable snapshot,
+ * in the order in which its toString lists them. This lets the free memory of any allocator be
+ * measured (e.g. its fragmentation) without parsing its toString.
+ */
+public interface InspectableAllocator extends MemoryAllocator {
+
+    /** Returns an immutable snapshot of the free and allocated blocks, in the order of toString. */
+    MemorySpaceSnapshot snapshot();
+}
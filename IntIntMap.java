@@ -0,0 +1,133 @@
+/**
+ * A hash map from int keys to int values, using open addressing with linear probing.
+ * This is the primitive-valued counterpart of IntMap: neither the keys nor the values
+ * are boxed, so the map holds no objects besides its three arrays.
+ */
+public class IntIntMap {
+
+    private int[] keys;       // the key stored in each slot
+    private int[] values;     // the value stored in each slot
+    private boolean[] used;   // true if the slot holds a key
+    private int size;         // number of keys in this map
+    private int mask;         // capacity - 1 (the capacity is a power of two)
+
+    /** Constructs an empty map. */
+    public IntIntMap() {
+        this(16);
+    }
+
+    /** Constructs an empty map, with room for about 'expectedSize' keys before resizing. */
+    public IntIntMap(int expectedSize) {
+        int capacity = 16;
+        while (capacity < 2 * expectedSize) {
+            capacity *= 2;
+        }
+        allocate(capacity);
+    }
+
+    /** Returns the number of keys in this map. */
+    public int size() {
+        return size;
+    }
+
+    /** Returns the value of the given key, or 'missing' if the key is not in this map. */
+    public int get(int key, int missing) {
+        for (int slot = slotOf(key); used[slot]; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+        }
+        return missing;
+    }
+
+    /** Returns true if the given key is in this map. */
+    public boolean containsKey(int key) {
+        for (int slot = slotOf(key); used[slot]; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Maps the given key to the given value (replacing its previous value, if any). */
+    public void put(int key, int value) {
+        int slot = slotOf(key);
+        for (; used[slot]; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                values[slot] = value;
+                return;
+            }
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        used[slot] = true;
+        size++;
+        if (2 * size > keys.length) {
+            resize(2 * keys.length);
+        }
+    }
+
+    /** Removes the given key from this map. Returns its value, or 'missing' if the key was not in this map. */
+    public int remove(int key, int missing) {
+        int slot = slotOf(key);
+        while (used[slot] && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        if (!used[slot]) {
+            return missing;
+        }
+        int removed = values[slot];
+        // Shifts back the following keys of the probe run, so that no key becomes unreachable
+        int hole = slot;
+        for (int next = (hole + 1) & mask; used[next]; next = (next + 1) & mask) {
+            int home = slotOf(keys[next]);
+            // the key at 'next' can fill the hole only if its home slot is not in (hole, next]
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                values[hole] = values[next];
+                hole = next;
+            }
+        }
+        used[hole] = false;
+        size--;
+        return removed;
+    }
+
+    /** Removes all the keys from this map. */
+    public void clear() {
+        java.util.Arrays.fill(used, false);
+        size = 0;
+    }
+
+    // Returns the home slot of the given key
+    private int slotOf(int key) {
+        int h = key * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        used = new boolean[capacity];
+        mask = capacity - 1;
+    }
+
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        boolean[] oldUsed = used;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldUsed[i]) {
+                int slot = slotOf(oldKeys[i]);
+                while (used[slot]) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+                used[slot] = true;
+            }
+        }
+    }
+}
@@ -4,6 +4,14 @@ public class LinkedList {
     private Node last;  // pointer to the last element of this list
     private int size;   // number of elements in this list
 
+    // The node returned by the last call to getNode, and its index (null if the list changed since).
+    // Lets a loop of getNode(0), getNode(1), ... resume from where it was, instead of from first.
+    private Node cachedNode;
+    private int cachedIndex;
+
+    // block -> the node that points to it, compared by identity (null if the list is not indexed)
+    private java.util.IdentityHashMap<MemoryBlock, Node> nodesByBlock;
+
     /**
      * Constructs a new list.
      */ 
@@ -13,6 +21,17 @@ public class LinkedList {
         size = 0;
     }
 
+    /**
+     * Constructs a new list. If indexBlocks is true, the list also keeps an index from each
+     * block object to its node, so that nodeOf and removeIdentical take O(1) time.
+     */
+    public LinkedList(boolean indexBlocks) {
+        this();
+        if (indexBlocks) {
+            nodesByBlock = new java.util.IdentityHashMap<>();
+        }
+    }
+
     /** Returns the first node in this list (may be null if list is empty). */
     public Node getFirst() {
         return first;
@@ -38,13 +57,37 @@ public class LinkedList {
         if (index < 0 || index >= size) {
             throw new IllegalArgumentException("index must be between 0 and size");
         }
-        Node current = first;
-        for (int i = 0; i < index; i++) {
-            current = current.next;
+        if (index == size - 1) {
+            return last;
+        }
+        Node current;
+        if (cachedNode != null && cachedIndex <= index) {
+            // resume from the last accessed position, since it is not past the requested one
+            current = cachedNode;
+            for (int i = cachedIndex; i < index; i++) {
+                current = current.next;
+            }
+        } else if (index < size / 2) {
+            current = first;
+            for (int i = 0; i < index; i++) {
+                current = current.next;
+            }
+        } else {
+            current = last;
+            for (int i = size - 1; i > index; i--) {
+                current = current.prev;
+            }
         }
+        cachedNode = current;
+        cachedIndex = index;
         return current;
     }
 
+    /** Returns a cursor positioned at the first node of this list. */
+    public ListCursor cursor() {
+        return new ListCursor(this);
+    }
+
     /**
      * Creates a new Node object that points to 'block',
      * and inserts it at the given index in this list.
@@ -56,30 +99,49 @@ public class LinkedList {
         if (index < 0 || index > size) {
             throw new IllegalArgumentException("index must be between 0 and size");
         }
+        cachedNode = null;
         Node newNode = new Node(block);
 
         // Insert at head
         if (index == 0) {
-            newNode.next = first;
-            first = newNode;
-            if (size == 0) {
-                last = newNode;
-            }
-            size++;
+            linkAfter(null, newNode);
             return;
         }
         // Insert at tail
         if (index == size) {
-            last.next = newNode;
-            last = newNode;
-            size++;
+            linkAfter(last, newNode);
             return;
         }
         // Insert in the middle
-        Node prev = getNode(index - 1);
-        newNode.next = prev.next;
-        prev.next = newNode;
-        size++;
+        linkAfter(getNode(index - 1), newNode);
+    }
+
+    /**
+     * Creates a new Node object that points to 'block', and inserts it right after
+     * the given node of this list (or at the beginning of the list, if node is null).
+     * Unlike add(index, block), no traversal is needed.
+     * @return the new node
+     */
+    public Node addAfter(Node node, MemoryBlock block) {
+        cachedNode = null;
+        Node newNode = new Node(block);
+        linkAfter(node, newNode);
+        return newNode;
+    }
+
+    /**
+     * Removes the node that follows the given node of this list (or the first node, if node is null),
+     * without any traversal.
+     * @return the removed node, or null if there was no node to remove
+     */
+    public Node removeAfter(Node node) {
+        Node toRemove = (node == null) ? first : node.next;
+        if (toRemove == null) {
+            return null;
+        }
+        cachedNode = null;
+        unlink(toRemove);
+        return toRemove;
     }
 
     /** Adds 'block' at the end of this list. */
@@ -119,37 +181,20 @@ public class LinkedList {
     }
 
     /**
-     * Removes the given node from this list.
+     * Removes the given node from this list, in O(1) time (the node knows its predecessor).
      * If node == null => must throw NullPointerException("NullPointerException!")
+     * If the node doesn't belong to this list (it was already removed, or belongs to another list),
+     * nothing happens.
      */
     public void remove(Node node) {
         if (node == null) {
             throw new NullPointerException("NullPointerException!");
         }
-        if (size == 0) {
+        if (node.list != this) {
             return; // nothing to do
         }
-        // If removing the first node
-        if (first == node) {
-            first = first.next;
-            size--;
-            if (size == 0) {
-                last = null;
-            }
-            return;
-        }
-        // Otherwise, find node
-        Node current = first;
-        while (current.next != null && current.next != node) {
-            current = current.next;
-        }
-        if (current.next == node) {
-            current.next = node.next;
-            size--;
-            if (node == last) {
-                last = current;
-            }
-        }
+        cachedNode = null;
+        unlink(node);
     }
 
     /**
@@ -161,22 +206,44 @@ public class LinkedList {
         if (index < 0 || index >= size) {
             throw new IllegalArgumentException("index must be between 0 and size");
         }
-        if (index == 0) {
-            Node oldFirst = first;
-            first = first.next;
-            size--;
-            if (size == 0) {
-                last = null;
+        Node toRemove = getNode(index);
+        cachedNode = null;
+        unlink(toRemove);
+    }
+
+    /**
+     * Returns the node of this list that points to this very block object (not to an equal block),
+     * or null if there is none. Takes O(1) time if the list indexes its blocks, and O(n) otherwise.
+     */
+    public Node nodeOf(MemoryBlock block) {
+        if (nodesByBlock != null) {
+            Node node = nodesByBlock.get(block);
+            if (node != null) {
+                return node;
             }
-            return;
         }
-        Node prev = getNode(index - 1);
-        Node toRemove = prev.next;
-        prev.next = toRemove.next;
-        size--;
-        if (toRemove == last) {
-            last = prev;
+        // Not indexed (or the same block object is in the list more than once)
+        for (Node current = first; current != null; current = current.next) {
+            if (current.block == block) {
+                return current;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Removes from this list the node that points to this very block object.
+     * Unlike remove(block), blocks are compared by identity, so the equals check is skipped,
+     * and the removal takes O(1) time if the list indexes its blocks.
+     * If block == null or block not found => throw IAE("index must be between 0 and size")
+     */
+    public void removeIdentical(MemoryBlock block) {
+        Node node = (block == null) ? null : nodeOf(block);
+        if (node == null) {
+            throw new IllegalArgumentException("index must be between 0 and size");
         }
+        cachedNode = null;
+        unlink(node);
     }
 
     /**
@@ -190,29 +257,143 @@ public class LinkedList {
         if (size == 0) {
             throw new IllegalArgumentException("index must be between 0 and size");
         }
-        // If first is the block
-        if (first.block.equals(block)) {
-            first = first.next;
-            size--;
-            if (size == 0) {
-                last = null;
-            }
-            return;
-        }
         Node current = first;
-        while (current.next != null && !current.next.block.equals(block)) {
+        while (current != null && !current.block.equals(block)) {
             current = current.next;
         }
-        if (current.next == null) {
+        if (current == null) {
             // not found
             throw new IllegalArgumentException("index must be between 0 and size");
         }
-        Node toRemove = current.next;
-        current.next = toRemove.next;
+        cachedNode = null;
+        unlink(current);
+    }
+
+    // Inserts newNode right after the given node of this list (or first, if node is null)
+    private void linkAfter(Node node, Node newNode) {
+        Node next = (node == null) ? first : node.next;
+        newNode.prev = node;
+        newNode.next = next;
+        newNode.list = this;
+        if (node == null) {
+            first = newNode;
+        } else {
+            node.next = newNode;
+        }
+        if (next == null) {
+            last = newNode;
+        } else {
+            next.prev = newNode;
+        }
+        size++;
+        if (nodesByBlock != null) {
+            nodesByBlock.putIfAbsent(newNode.block, newNode);
+        }
+    }
+
+    // Removes the given node, which belongs to this list, using its prev and next pointers
+    private void unlink(Node node) {
+        if (node.prev == null) {
+            first = node.next;
+        } else {
+            node.prev.next = node.next;
+        }
+        if (node.next == null) {
+            last = node.prev;
+        } else {
+            node.next.prev = node.prev;
+        }
+        node.list = null;
         size--;
-        if (toRemove == last) {
-            last = current;
+        if (nodesByBlock != null && nodesByBlock.get(node.block) == node) {
+            nodesByBlock.remove(node.block);
+        }
+    }
+
+    /**
+     * Sorts this list by the base addresses of its blocks, in increasing order.
+     * The nodes themselves are relinked (merge sort), so no nodes or blocks are copied
+     * and no extra memory is used besides the recursion, whose depth is O(log n).
+     */
+    public void sortByBaseAddress() {
+        if (size < 2) {
+            return;
+        }
+        cachedNode = null;
+        first = mergeSort(first, size);
+        // the merge sort only relinks the next pointers
+        first.prev = null;
+        Node current = first;
+        while (current.next != null) {
+            current.next.prev = current;
+            current = current.next;
+        }
+        last = current;
+    }
+
+    // Sorts the chain of 'length' nodes that starts at 'head', and returns the new head.
+    // The last node of the chain must point to null.
+    private static Node mergeSort(Node head, int length) {
+        if (length < 2) {
+            return head;
+        }
+        int half = length / 2;
+        Node middle = head;
+        for (int i = 1; i < half; i++) {
+            middle = middle.next;
+        }
+        Node second = middle.next;
+        middle.next = null;
+        return merge(mergeSort(head, half), mergeSort(second, length - half));
+    }
+
+    // Merges two sorted chains into one sorted chain (keeping equal blocks in their order), and returns its head
+    private static Node merge(Node a, Node b) {
+        Node head = null;
+        Node tail = null;
+        while (a != null && b != null) {
+            Node smaller;
+            if (a.block.baseAddress <= b.block.baseAddress) {
+                smaller = a;
+                a = a.next;
+            } else {
+                smaller = b;
+                b = b.next;
+            }
+            if (tail == null) {
+                head = smaller;
+            } else {
+                tail.next = smaller;
+            }
+            tail = smaller;
+        }
+        Node rest = (a != null) ? a : b;
+        if (tail == null) {
+            return rest;
+        }
+        tail.next = rest;
+        return head;
+    }
+
+    /**
+     * Merges every run of consecutive nodes whose blocks are contiguous in memory
+     * (one block ends where the next one begins) into a single node, in one pass.
+     * If the list is sorted by base address, all the contiguous blocks get merged.
+     */
+    public void mergeAdjacentBlocks() {
+        cachedNode = null;
+        Node current = first;
+        while (current != null && current.next != null) {
+            MemoryBlock block = current.block;
+            MemoryBlock nextBlock = current.next.block;
+            if (block.baseAddress + block.length == nextBlock.baseAddress) {
+                block.length += nextBlock.length;
+                unlink(current.next);
+            } else {
+                current = current.next;
+            }
         }
+        last = current;
     }
 
     /** Returns an iterator over this list. */
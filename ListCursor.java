@@ -0,0 +1,115 @@
+/**
+ * A cursor over a linked list, for sequential processing that also modifies the list.
+ * The cursor is positioned at a node of the list (its current node), or past the end of the list.
+ * Reading the current block, moving to the next node, inserting before or after the current
+ * node, and removing the current node all take O(1) time.
+ * If the list is modified while the cursor is used, not through the cursor, the cursor is no longer valid.
+ */
+public class ListCursor {
+
+    private final LinkedList list;
+    private Node previous; // the node before the current one (null if the current node is the first)
+    private Node current;  // the current node (null if the cursor is past the end of the list)
+    private int index;     // the index of the current node
+
+    /** Constructs a cursor positioned at the first node of the given list. */
+    public ListCursor(LinkedList list) {
+        this.list = list;
+        this.current = list.getFirst();
+    }
+
+    /** Returns true if the cursor is positioned at a node (and not past the end of the list). */
+    public boolean hasCurrent() {
+        return current != null;
+    }
+
+    /** Returns the index of the current node (the size of the list, if the cursor is past its end). */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * Returns the current node.
+     * @throws IllegalStateException if the cursor is past the end of the list
+     */
+    public Node getNode() {
+        checkCurrent();
+        return current;
+    }
+
+    /**
+     * Returns the block of the current node.
+     * @throws IllegalStateException if the cursor is past the end of the list
+     */
+    public MemoryBlock getBlock() {
+        checkCurrent();
+        return current.block;
+    }
+
+    /**
+     * Moves the cursor to the next node.
+     * @throws IllegalStateException if the cursor is past the end of the list
+     */
+    public void next() {
+        checkCurrent();
+        previous = current;
+        current = current.next;
+        index++;
+    }
+
+    /**
+     * Moves the cursor to the node at the given index. Moving forward continues from
+     * the current node, so moving through the list in increasing order takes linear time.
+     * @param index the index [0..size], where size means past the end of the list
+     * @throws IllegalArgumentException if index is out of range
+     */
+    public void moveTo(int index) {
+        if (index < 0 || index > list.getSize()) {
+            throw new IllegalArgumentException("index must be between 0 and size");
+        }
+        if (index < this.index) {
+            previous = null;
+            current = list.getFirst();
+            this.index = 0;
+        }
+        while (this.index < index) {
+            next();
+        }
+    }
+
+    /**
+     * Inserts the given block before the current node (at the end of the list, if the cursor is
+     * past its end). The cursor stays on the same node, whose index grows by one.
+     */
+    public void insertBefore(MemoryBlock block) {
+        previous = list.addAfter(previous, block);
+        index++;
+    }
+
+    /**
+     * Inserts the given block after the current node. The cursor stays on the current node.
+     * @throws IllegalStateException if the cursor is past the end of the list
+     */
+    public void insertAfter(MemoryBlock block) {
+        checkCurrent();
+        list.addAfter(current, block);
+    }
+
+    /**
+     * Removes the current node from the list, and moves the cursor to the node that followed it.
+     * @return the removed block
+     * @throws IllegalStateException if the cursor is past the end of the list
+     */
+    public MemoryBlock remove() {
+        checkCurrent();
+        Node removed = list.removeAfter(previous);
+        current = removed.next;
+        return removed.block;
+    }
+
+    private void checkCurrent() {
+        if (current == null) {
+            throw new IllegalStateException("the cursor is past the end of the list");
+        }
+    }
+}
@@ -0,0 +1,167 @@
+/**
+ * A doubly linked list of LongMemoryBlocks: the 64-bit counterpart of LinkedList,
+ * with the operations that LongMemorySpace needs.
+ */
+public class LongLinkedList {
+
+    private LongNode first; // pointer to the first element of this list
+    private LongNode last;  // pointer to the last element of this list
+    private int size;       // number of elements in this list
+
+    /** Returns the first node in this list (may be null if list is empty). */
+    public LongNode getFirst() {
+        return first;
+    }
+
+    /** Returns the last node in this list (may be null if list is empty). */
+    public LongNode getLast() {
+        return last;
+    }
+
+    /** Returns the number of elements in this list. */
+    public int getSize() {
+        return size;
+    }
+
+    /** Adds the given block at the end of this list, and returns its node. */
+    public LongNode addLast(LongMemoryBlock block) {
+        return addAfter(last, block);
+    }
+
+    /**
+     * Inserts the given block right after the given node of this list (or first, if node is null),
+     * and returns the new node.
+     */
+    public LongNode addAfter(LongNode node, LongMemoryBlock block) {
+        LongNode newNode = new LongNode(block);
+        LongNode next = (node == null) ? first : node.next;
+        newNode.prev = node;
+        newNode.next = next;
+        if (node == null) {
+            first = newNode;
+        } else {
+            node.next = newNode;
+        }
+        if (next == null) {
+            last = newNode;
+        } else {
+            next.prev = newNode;
+        }
+        size++;
+        return newNode;
+    }
+
+    /**
+     * Removes the given node, which belongs to this list, in O(1) time.
+     * If node == null => must throw NullPointerException("NullPointerException!")
+     */
+    public void remove(LongNode node) {
+        if (node == null) {
+            throw new NullPointerException("NullPointerException!");
+        }
+        if (node.prev == null) {
+            first = node.next;
+        } else {
+            node.prev.next = node.next;
+        }
+        if (node.next == null) {
+            last = node.prev;
+        } else {
+            node.next.prev = node.prev;
+        }
+        node.prev = null;
+        node.next = null;
+        size--;
+    }
+
+    /** Sorts this list by the base addresses of its blocks, in increasing order (see LinkedList.sortByBaseAddress). */
+    public void sortByBaseAddress() {
+        if (size < 2) {
+            return;
+        }
+        first = mergeSort(first, size);
+        first.prev = null;
+        LongNode current = first;
+        while (current.next != null) {
+            current.next.prev = current;
+            current = current.next;
+        }
+        last = current;
+    }
+
+    // Sorts the chain of 'length' nodes that starts at 'head', and returns the new head.
+    // The last node of the chain must point to null.
+    private static LongNode mergeSort(LongNode head, int length) {
+        if (length < 2) {
+            return head;
+        }
+        int half = length / 2;
+        LongNode middle = head;
+        for (int i = 1; i < half; i++) {
+            middle = middle.next;
+        }
+        LongNode second = middle.next;
+        middle.next = null;
+        return merge(mergeSort(head, half), mergeSort(second, length - half));
+    }
+
+    // Merges two sorted chains into one sorted chain, and returns its head
+    private static LongNode merge(LongNode a, LongNode b) {
+        LongNode head = null;
+        LongNode tail = null;
+        while (a != null && b != null) {
+            LongNode smaller;
+            if (a.block.baseAddress <= b.block.baseAddress) {
+                smaller = a;
+                a = a.next;
+            } else {
+                smaller = b;
+                b = b.next;
+            }
+            if (tail == null) {
+                head = smaller;
+            } else {
+                tail.next = smaller;
+            }
+            tail = smaller;
+        }
+        LongNode rest = (a != null) ? a : b;
+        if (tail == null) {
+            return rest;
+        }
+        tail.next = rest;
+        return head;
+    }
+
+    /**
+     * Merges every run of consecutive nodes whose blocks are contiguous in memory into a single node,
+     * in one pass (see LinkedList.mergeAdjacentBlocks).
+     * @throws ArithmeticException if the end of a block overflows a long
+     */
+    public void mergeAdjacentBlocks() {
+        LongNode current = first;
+        while (current != null && current.next != null) {
+            LongMemoryBlock block = current.block;
+            LongMemoryBlock nextBlock = current.next.block;
+            if (block.end() == nextBlock.baseAddress) {
+                block.length = Math.addExact(block.length, nextBlock.length);
+                remove(current.next);
+            } else {
+                current = current.next;
+            }
+        }
+    }
+
+    /** Returns the blocks of this list in the format of LinkedList.toString: "(baseAddress , length) " per block. */
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (LongNode current = first; current != null; current = current.next) {
+            sb.append("(")
+              .append(current.block.baseAddress)
+              .append(" , ")
+              .append(current.block.length)
+              .append(") ");
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,135 @@
+/**
+ * A hash map from long keys to (non-null) values, using open addressing with linear probing:
+ * the counterpart of IntMap for the 64-bit addresses of LongMemorySpace. Keys are stored as
+ * primitive longs, so no Long objects are created, and all the operations take expected O(1) time.
+ */
+public class LongMap<V> {
+
+    private long[] keys;     // the key stored in each slot
+    private Object[] values; // the value stored in each slot (null if the slot is empty)
+    private int size;        // number of keys in this map
+    private int mask;        // capacity - 1 (the capacity is a power of two)
+
+    /** Constructs an empty map. */
+    public LongMap() {
+        this(16);
+    }
+
+    /** Constructs an empty map, with room for about 'expectedSize' keys before resizing. */
+    public LongMap(int expectedSize) {
+        int capacity = 16;
+        while (capacity < 2 * expectedSize) {
+            capacity *= 2;
+        }
+        allocate(capacity);
+    }
+
+    /** Returns the number of keys in this map. */
+    public int size() {
+        return size;
+    }
+
+    /** Returns the value of the given key, or null if the key is not in this map. */
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        for (int slot = slotOf(key); values[slot] != null; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return (V) values[slot];
+            }
+        }
+        return null;
+    }
+
+    /** Returns true if the given key is in this map. */
+    public boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Maps the given key to the given value.
+     * Returns the previous value of the key, or null if the key was not in this map.
+     * @throws NullPointerException if value is null
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        if (value == null) {
+            throw new NullPointerException("NullPointerException!");
+        }
+        int slot = slotOf(key);
+        for (; values[slot] != null; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                V previous = (V) values[slot];
+                values[slot] = value;
+                return previous;
+            }
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        size++;
+        if (2 * size > keys.length) {
+            resize(2 * keys.length);
+        }
+        return null;
+    }
+
+    /** Removes the given key from this map. Returns its value, or null if the key was not in this map. */
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        int slot = slotOf(key);
+        while (values[slot] != null && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        if (values[slot] == null) {
+            return null;
+        }
+        V removed = (V) values[slot];
+        // Shifts back the following keys of the probe run, so that no key becomes unreachable
+        int hole = slot;
+        for (int next = (hole + 1) & mask; values[next] != null; next = (next + 1) & mask) {
+            int home = slotOf(keys[next]);
+            // the key at 'next' can fill the hole only if its home slot is not in (hole, next]
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                values[hole] = values[next];
+                hole = next;
+            }
+        }
+        values[hole] = null;
+        size--;
+        return removed;
+    }
+
+    /** Removes all the keys from this map. */
+    public void clear() {
+        java.util.Arrays.fill(values, null);
+        size = 0;
+    }
+
+    // Returns the home slot of the given key
+    private int slotOf(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != null) {
+                int slot = slotOf(oldKeys[i]);
+                while (values[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+}
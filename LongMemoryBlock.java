@@ -0,0 +1,52 @@
+/**
+ * Represents a block of memory in a 64-bit address space.
+ * Like MemoryBlock, but the base address and the length are longs.
+ */
+public class LongMemoryBlock {
+
+	long baseAddress;  // the address where this memory block begins
+	long length;       // the length of this memory block, in words
+
+	/**
+	 * Constructs a new memory block with a given base address and length in words 
+	 * 
+	 * @param baseAddress
+	 *        the address of the first word in this block
+	 * @param length
+	 *        the length of this memory block, in words
+	 */
+	public LongMemoryBlock(long baseAddress, long length) {
+		this.baseAddress = baseAddress;
+		this.length = length;
+	}
+
+	/**
+	 * Returns the address right after the end of this block
+	 * 
+	 * @return baseAddress + length
+	 * @throws ArithmeticException
+	 *         if the end of this block overflows a long
+	 */
+	public long end() {
+		return Math.addExact(baseAddress, length);
+	}
+
+	/**
+	 * Checks if this block has the same base address and length as the given block
+	 * 
+	 * @param other
+	 *        the given block
+	 * @return true if this block equals the other block, false otherwise
+	 */
+	public boolean equals(LongMemoryBlock other) {
+		return baseAddress == other.baseAddress && length == other.length;
+	}
+
+	/**
+	 * A textual representation of this memory block, for debugging.
+	 * For example: (208 , 10)
+	 */
+	public String toString() {
+		return "(" + baseAddress + " , " + length + ")";
+	}
+}
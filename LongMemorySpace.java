@@ -0,0 +1,100 @@
+/**
+ * A managed memory space over a 64-bit address space: the counterpart of a first-fit
+ * MemorySpace whose addresses and lengths are longs, for address spaces larger than 2^31 words.
+ * All the address arithmetic is overflow-checked, and throws an ArithmeticException instead
+ * of wrapping around. MemorySpace stays the path for the common case: its int addresses and
+ * lengths take half the space of these, and are compared and added without overflow checks.
+ */
+public class LongMemorySpace {
+
+    private final LongLinkedList allocatedList;         // blocks currently allocated
+    private final LongLinkedList freeList;              // blocks currently free
+    private final LongMap<LongNode> allocatedIndex;     // base address -> node of allocatedList
+
+    /** Constructs a new managed memory space that manages the addresses [0, maxSize). */
+    public LongMemorySpace(long maxSize) {
+        this(0, maxSize);
+    }
+
+    /**
+     * Constructs a new managed memory space that manages the addresses [baseAddress, baseAddress + maxSize).
+     * @throws IllegalArgumentException if baseAddress or maxSize is negative (so that no address
+     *         is confused with the -1 of a failed malloc), or if baseAddress + maxSize overflows a long
+     */
+    public LongMemorySpace(long baseAddress, long maxSize) {
+        if (baseAddress < 0 || maxSize < 0) {
+            throw new IllegalArgumentException("baseAddress and maxSize must not be negative");
+        }
+        if (baseAddress > Long.MAX_VALUE - maxSize) {
+            throw new IllegalArgumentException("the range [baseAddress, baseAddress + maxSize) must fit in a long");
+        }
+        allocatedList = new LongLinkedList();
+        freeList = new LongLinkedList();
+        allocatedIndex = new LongMap<>();
+        // entire memory is initially free
+        freeList.addLast(new LongMemoryBlock(baseAddress, maxSize));
+    }
+
+    /** Returns the total length of the free blocks. */
+    public long getFreeSize() {
+        long total = 0;
+        for (LongNode current = freeList.getFirst(); current != null; current = current.next) {
+            total = Math.addExact(total, current.block.length);
+        }
+        return total;
+    }
+
+    /**
+     * Allocates a memory block of length 'length', using a "first-fit" approach (see MemorySpace.malloc).
+     * Return value = baseAddress of the allocated block, or -1 if fail.
+     */
+    public long malloc(long length) {
+        if (length <= 0) {
+            return -1;
+        }
+        for (LongNode freeNode = freeList.getFirst(); freeNode != null; freeNode = freeNode.next) {
+            LongMemoryBlock freeBlock = freeNode.block;
+            if (freeBlock.length >= length) {
+                long address = freeBlock.baseAddress;
+                allocatedIndex.put(address, allocatedList.addLast(new LongMemoryBlock(address, length)));
+                freeBlock.baseAddress = Math.addExact(address, length);
+                freeBlock.length -= length;
+                if (freeBlock.length == 0) {
+                    freeList.remove(freeNode);
+                }
+                return address;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Frees the memory block whose base address == address (see MemorySpace.free).
+     * @throws IllegalArgumentException if no block is allocated
+     */
+    public void free(long address) {
+        if (allocatedList.getSize() == 0) {
+            throw new IllegalArgumentException("index must be between 0 and size");
+        }
+        LongNode node = allocatedIndex.remove(address);
+        if (node == null) {
+            return;
+        }
+        allocatedList.remove(node);
+        freeList.addLast(new LongMemoryBlock(node.block.baseAddress, node.block.length));
+    }
+
+    /** Sorts freeList by base address, and merges its consecutive blocks (see MemorySpace.defrag). */
+    public void defrag() {
+        if (freeList.getSize() < 2) {
+            return;
+        }
+        freeList.sortByBaseAddress();
+        freeList.mergeAdjacentBlocks();
+    }
+
+    /** Returns the free blocks, then "\n", then the allocated blocks (see MemorySpace.toString). */
+    public String toString() {
+        return freeList.toString() + "\n" + allocatedList.toString();
+    }
+}
@@ -0,0 +1,27 @@
+/**
+ * Represents a node in a LongLinkedList. Each node points to a LongMemoryBlock object. 
+ */
+public class LongNode {
+
+	LongMemoryBlock block;  // The memory block that this node points at
+	LongNode next = null;   // The next node in the list
+	LongNode prev = null;   // The previous node in the list
+
+	/**
+	 * Constructs a new node, pointing to the given memory block.
+	 * 
+	 * @param block
+	 *        the given memory block
+	 */
+	public LongNode(LongMemoryBlock block) {
+		this.block = block;
+	}
+
+	/**
+	 * A textual representation of this node, for debugging.
+	 * For example: {(208 , 10)}. 
+	 */
+	public String toString() {
+		return "{" + block + "}";
+	}
+}
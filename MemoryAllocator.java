@@ -0,0 +1,23 @@
+/**
+ * The operations of a memory management system: allocating blocks of memory,
+ * freeing them, and defragmenting the free memory.
+ * The toString of an implementation returns its free blocks on the first line, and its
+ * allocated blocks on the second line, in the format "(baseAddress , length) " (see MemorySpace).
+ */
+public interface MemoryAllocator {
+
+    /**
+     * Allocates a memory block of the given length.
+     * Returns the base address of the allocated block, or -1 if it can't be allocated.
+     */
+    int malloc(int length);
+
+    /**
+     * Frees the allocated block whose base address is the given address.
+     * Does nothing if there is no such block.
+     */
+    void free(int address);
+
+    /** Merges the adjacent free blocks. */
+    void defrag();
+}
@@ -31,6 +31,33 @@ public class MemoryBlock {
 		return baseAddress == other.baseAddress && length == other.length;
 	}
 
+	/**
+	 * Returns the number of words between the base address of this block and the first
+	 * address, at or after it, that is a multiple of the given (positive) alignment
+	 * 
+	 * @param alignment
+	 *        the alignment, in words
+	 * @return the slack before the first aligned address
+	 */
+	public int alignmentSlack(int alignment) {
+		int remainder = Math.floorMod(baseAddress, alignment);
+		return (remainder == 0) ? 0 : alignment - remainder;
+	}
+
+	/**
+	 * Checks if a block of the given length, whose base address is a multiple of the
+	 * given alignment, fits in this block
+	 * 
+	 * @param length
+	 *        the length of the requested block, in words
+	 * @param alignment
+	 *        the alignment of the requested block, in words
+	 * @return true if the requested block fits in this block, false otherwise
+	 */
+	public boolean fitsAligned(int length, int alignment) {
+		return (long) alignmentSlack(alignment) + length <= this.length;
+	}
+
 	/**
 	 * A textual representation of this memory block, for debugging.
 	 * The block's contents appears within parentheses.
@@ -1,16 +1,174 @@
-public class MemorySpace {
+public class MemorySpace implements InspectableAllocator {
 
     private LinkedList allocatedList; // blocks currently allocated
     private LinkedList freeList;      // blocks currently free
+    private IntMap<Node> allocatedIndex; // base address -> first node of allocatedList with that address
+    private IntIntMap sharedAddresses;   // base address -> number of allocated nodes with that address left out of allocatedIndex
+    private IntMap<Node> freeStarts;     // base address -> node of freeList (null until realloc or a rescue needs it)
+
+    private final int baseAddress;         // the managed addresses are [baseAddress, baseAddress + maxSize)
+    private final int maxSize;
+    private final AllocationPolicy policy; // how malloc chooses a free block
+    private FreeBlockTree freeIndex;       // index over freeList (null if the policy doesn't need one)
+    private SegregatedFreeBins freeBins;   // size classes of freeList (null if the policy doesn't need them)
+    private Node rover;                    // where the next next-fit scan starts (null = start of freeList)
+    private boolean coalescing;            // if true, freeList is always sorted and merged
+    private MemorySpaceSnapshot snapshot;  // the last snapshot, if nothing changed since (null otherwise)
+
+    // rescue of failing mallocs (see setRescueSteps)
+    private int rescueSteps;               // maximal number of free blocks to coalesce per rescue (0 = off)
+    private Node rescueCursor;             // where the next rescue starts (null = start of freeList)
+    private int rescues;                   // number of mallocs that failed and tried a rescue
+    private int rescuedMallocs;            // number of those that succeeded thanks to the rescue
+    private long rescueMerges;             // number of free blocks merged by rescues
 
     /**
-     * Constructs a new managed memory space of a given maximal size.
+     * Constructs a new managed memory space of a given maximal size,
+     * that allocates memory using the "first-fit" policy.
      */
     public MemorySpace(int maxSize) {
+        this(maxSize, AllocationPolicy.FIRST_FIT);
+    }
+
+    /**
+     * Constructs a new managed memory space of a given maximal size,
+     * that allocates memory using the given policy.
+     */
+    public MemorySpace(int maxSize, AllocationPolicy policy) {
+        this(0, maxSize, policy);
+    }
+
+    /**
+     * Constructs a new managed memory space of a given size, that manages the addresses
+     * [baseAddress, baseAddress + maxSize), and allocates memory using the given policy.
+     * @throws IllegalArgumentException if baseAddress or maxSize is negative (so that no address
+     *         is confused with the -1 of a failed malloc), or if baseAddress + maxSize overflows an int
+     *         (see LongMemorySpace for larger address spaces)
+     */
+    public MemorySpace(int baseAddress, int maxSize, AllocationPolicy policy) {
+        if (baseAddress < 0 || maxSize < 0) {
+            throw new IllegalArgumentException("baseAddress and maxSize must not be negative");
+        }
+        if (baseAddress > Integer.MAX_VALUE - maxSize) {
+            throw new IllegalArgumentException("the range [baseAddress, baseAddress + maxSize) must fit in an int");
+        }
+        this.baseAddress = baseAddress;
+        this.maxSize = maxSize;
+        this.policy = policy;
         allocatedList = new LinkedList();
         freeList = new LinkedList();
+        allocatedIndex = new IntMap<>();
+        sharedAddresses = new IntIntMap();
+        if (policy == AllocationPolicy.INDEXED_FIRST_FIT) {
+            freeIndex = new FreeBlockTree();
+        } else if (policy == AllocationPolicy.SEGREGATED_FIT) {
+            freeBins = new SegregatedFreeBins();
+        }
         // entire memory is initially free
-        freeList.addLast(new MemoryBlock(0, maxSize));
+        appendFree(new MemoryBlock(baseAddress, maxSize));
+    }
+
+    /** Returns the allocation policy of this memory space. */
+    public AllocationPolicy getPolicy() {
+        return policy;
+    }
+
+    /** Returns true if this memory space coalesces freed blocks immediately. */
+    public boolean isCoalescing() {
+        return coalescing;
+    }
+
+    /**
+     * Turns immediate coalescing on or off.
+     * When it is on, free inserts the freed block into freeList in address order, and merges
+     * it with its free neighbours right away, so freeList is always defragmented, and
+     * defrag() has nothing to do. Turning it on defrags freeList first.
+     */
+    public void setCoalescing(boolean coalescing) {
+        if (coalescing == this.coalescing) {
+            return;
+        }
+        if (coalescing) {
+            defrag();
+            if (freeIndex == null) {
+                freeIndex = new FreeBlockTree();
+                freeIndex.build(freeList);
+            }
+        } else if (policy != AllocationPolicy.INDEXED_FIRST_FIT) {
+            freeIndex = null;
+        }
+        this.coalescing = coalescing;
+    }
+
+    /**
+     * Turns the rescue of failing mallocs on (steps > 0) or off (steps == 0, the default).
+     * When it is on, a malloc that finds no free block that fits doesn't fail right away:
+     * it coalesces free blocks, merging each one with the free blocks that follow it in memory
+     * (found by their base addresses, without sorting), and retries on each merged block.
+     * At most 'steps' free blocks are coalesced per rescue, so its cost is bounded. Each rescue
+     * resumes where the previous one stopped, wrapping around to the start of freeList, so
+     * successive rescues eventually visit every free block, and the blocks that they merged stay
+     * merged for the next mallocs.
+     * Rescues are not needed in coalescing mode, where freeList is always defragmented.
+     */
+    public void setRescueSteps(int steps) {
+        if (steps < 0) {
+            throw new IllegalArgumentException("steps must not be negative");
+        }
+        rescueSteps = steps;
+    }
+
+    /** Returns the number of failing mallocs that tried a rescue. */
+    public int getRescueCount() {
+        return rescues;
+    }
+
+    /** Returns the number of failing mallocs that a rescue turned into successful ones. */
+    public int getRescuedMallocCount() {
+        return rescuedMallocs;
+    }
+
+    /** Returns the total number of free blocks merged by rescues. */
+    public long getRescueMerges() {
+        return rescueMerges;
+    }
+
+    /** Returns the number of blocks in the free list. */
+    public int getFreeBlockCount() {
+        return freeList.getSize();
+    }
+
+    /** Returns the total length of the free blocks. */
+    public int getFreeSize() {
+        int total = 0;
+        for (Node current = freeList.getFirst(); current != null; current = current.next) {
+            total += current.block.length;
+        }
+        return total;
+    }
+
+    /** Returns the length of the longest free block (0 if there are no free blocks). */
+    public int getLargestFreeBlock() {
+        int largest = 0;
+        for (Node current = freeList.getFirst(); current != null; current = current.next) {
+            largest = Math.max(largest, current.block.length);
+        }
+        return largest;
+    }
+
+    /**
+     * Returns an immutable snapshot of the free and allocated lists.
+     * The snapshot is cached until the next change, so polling an idle memory space is cheap.
+     * Like every method of this class, it must not run concurrently with a malloc or a free
+     * (ConcurrentMemorySpace.snapshot takes it under a read lock).
+     */
+    public MemorySpaceSnapshot snapshot() {
+        MemorySpaceSnapshot current = snapshot;
+        if (current == null) {
+            current = new MemorySpaceSnapshot(freeList, allocatedList);
+            snapshot = current;
+        }
+        return current;
     }
 
     /**
@@ -18,39 +176,240 @@ public class MemorySpace {
      * 1) Scans freeList from start to end for a block whose length >= requested 'length'.
      * 2) If found, carve out that portion from the free block and add to allocatedList.
      * 3) If not found, returns -1.
+     * A non-positive length is carved out like any other: a block of length 0 shares its base
+     * address with the next allocation there, and a negative length grows the free block.
+     * 
+     * Other policies only differ in step 1, i.e. in the choice of the free block (see AllocationPolicy).
      * 
      * Return value = baseAddress of the allocated block, or -1 if fail.
      */
     public int malloc(int length) {
+        Node freeNode;
+        switch (policy) {
+            case INDEXED_FIRST_FIT:
+                freeNode = freeIndex.firstFit(length);
+                break;
+            case NEXT_FIT:
+                freeNode = nextFit(length);
+                break;
+            case BEST_FIT:
+                freeNode = bestFit(length);
+                break;
+            case SEGREGATED_FIT:
+                freeNode = freeBins.fit(length);
+                break;
+            default:
+                // the free index, when there is one (see mallocBatch), finds the same block as the scan
+                freeNode = (freeIndex != null) ? freeIndex.firstFit(length) : firstFit(length);
+        }
+        if (freeNode == null && rescueSteps > 0 && !coalescing) {
+            freeNode = rescue(length);
+        }
+        if (freeNode == null) {
+            // if not found
+            return -1;
+        }
+        if (policy == AllocationPolicy.NEXT_FIT) {
+            rover = freeNode;
+        }
+        return allocateFrom(freeNode, length);
+    }
+
+    /**
+     * Allocates a block for each of the given lengths, in order, exactly as consecutive calls to
+     * malloc would, and returns their base addresses (-1 for each length that can't be allocated).
+     * With the "first-fit" policy, a free index is built once for the whole batch, so each
+     * allocation takes O(log n) time instead of a scan of freeList from its start.
+     */
+    public int[] mallocBatch(int[] lengths) {
+        int[] addresses = new int[lengths.length];
+        boolean temporaryIndex = policy == AllocationPolicy.FIRST_FIT && freeIndex == null && lengths.length > 1;
+        if (temporaryIndex) {
+            freeIndex = new FreeBlockTree();
+            freeIndex.build(freeList);
+        }
+        try {
+            for (int i = 0; i < lengths.length; i++) {
+                addresses[i] = malloc(lengths[i]);
+            }
+        } finally {
+            if (temporaryIndex) {
+                freeIndex = null;
+            }
+        }
+        return addresses;
+    }
+
+    /**
+     * Frees the blocks whose base addresses are given, in order, exactly as consecutive calls to free would.
+     * @throws IllegalArgumentException if allocatedList is empty when one of the frees is reached (see free)
+     */
+    public void freeBatch(int[] addresses) {
+        for (int address : addresses) {
+            free(address);
+        }
+    }
+
+    /**
+     * Allocates a memory block of length 'length' whose base address is a multiple of 'alignment'.
+     * The first free block (in freeList order) that can hold such a block is chosen, whatever the
+     * policy. When there is a free index (with the "indexed first-fit" policy, or in coalescing mode),
+     * a power-of-two alignment is found in O(log n) time (see FreeBlockTree.alignedFirstFit for the
+     * other alignments). Without a free index, freeList is scanned from its start, in O(n) time.
+     * The slack between the beginning of the chosen free block and the aligned address stays
+     * in freeList, as a free block of its own, right before the rest of the chosen block.
+     * Return value = baseAddress of the allocated block, or -1 if fail.
+     * @throws IllegalArgumentException if alignment is not positive
+     */
+    public int malloc(int length, int alignment) {
+        if (alignment <= 0) {
+            throw new IllegalArgumentException("alignment must be positive");
+        }
+        if (length <= 0) {
+            return -1;
+        }
+        Node freeNode = (freeIndex != null) ? freeIndex.alignedFirstFit(length, alignment) : alignedFirstFit(length, alignment);
+        if (freeNode == null) {
+            return -1;
+        }
+        MemoryBlock freeBlock = freeNode.block;
+        int slack = freeBlock.alignmentSlack(alignment);
+        if (slack > 0) {
+            // split the free block into the slack and the aligned rest, and allocate from the rest
+            int oldLength = freeBlock.length;
+            freeBlock.length = slack;
+            resizedFree(freeNode, freeBlock.baseAddress, oldLength);
+            freeNode = insertFree(freeNode, new MemoryBlock(freeBlock.baseAddress + slack, oldLength - slack));
+        }
+        return allocateFrom(freeNode, length);
+    }
+
+    /** Returns the first node in freeList whose block can hold an aligned block of length 'length', or null if none. */
+    private Node alignedFirstFit(int length, int alignment) {
+        for (Node current = freeList.getFirst(); current != null; current = current.next) {
+            if (current.block.fitsAligned(length, alignment)) {
+                return current;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Coalesces at most rescueSteps free blocks, from the rescue cursor on (wrapping around),
+     * with the free blocks that follow them in memory, and leaves the cursor after the last one.
+     * Returns the first merged node that can hold 'length', or null if none.
+     */
+    private Node rescue(int length) {
+        rescues++;
+        IntMap<Node> freeStarts = freeStarts();
+        Node start = (rescueCursor == null) ? freeList.getFirst() : rescueCursor;
+        Node current = start;
+        for (int step = 0; step < rescueSteps && current != null; step++) {
+            MemoryBlock block = current.block;
+            Node following = freeStarts.get(block.baseAddress + block.length);
+            while (following != null && following != current) {
+                int oldLength = block.length;
+                block.length += following.block.length;
+                removeFree(following, following.block.baseAddress, following.block.length);
+                resizedFree(current, block.baseAddress, oldLength);
+                rescueMerges++;
+                following = freeStarts.get(block.baseAddress + block.length);
+            }
+            Node next = (current.next == null) ? freeList.getFirst() : current.next;
+            if (block.length >= length) {
+                rescueCursor = next;
+                rescuedMallocs++;
+                return current;
+            }
+            current = next;
+            if (current == start) {
+                break; // every free block was coalesced
+            }
+        }
+        rescueCursor = current;
+        return null;
+    }
+
+    /** Returns the first node in freeList whose block can hold 'length', or null if none. */
+    private Node firstFit(int length) {
         // simple first-fit
         for (int i = 0; i < freeList.getSize(); i++) {
-            MemoryBlock freeBlock = freeList.getBlock(i);
-            if (freeBlock.length >= length) {
-                int address = freeBlock.baseAddress;
-                // allocate the new block
-                allocatedList.addLast(new MemoryBlock(address, length));
-
-                // update the free block
-                freeBlock.baseAddress += length;
-                freeBlock.length -= length;
-
-                // if freeBlock now has length 0, remove it from freeList
-                if (freeBlock.length == 0) {
-                    freeList.remove(freeBlock);
+            Node freeNode = freeList.getNode(i);
+            if (freeNode.block.length >= length) {
+                return freeNode;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the first node that can hold 'length', scanning freeList from the rover
+     * (the node of the previous allocation) to the end, and then from the start to the rover.
+     */
+    private Node nextFit(int length) {
+        Node start = (rover == null) ? freeList.getFirst() : rover;
+        for (Node current = start; current != null; current = current.next) {
+            if (current.block.length >= length) {
+                return current;
+            }
+        }
+        for (Node current = freeList.getFirst(); current != start; current = current.next) {
+            if (current.block.length >= length) {
+                return current;
+            }
+        }
+        return null;
+    }
+
+    /** Returns the node with the shortest block that can hold 'length' (the first one on ties), or null if none. */
+    private Node bestFit(int length) {
+        Node best = null;
+        for (Node current = freeList.getFirst(); current != null; current = current.next) {
+            int currentLength = current.block.length;
+            if (currentLength >= length && (best == null || currentLength < best.block.length)) {
+                best = current;
+                if (currentLength == length) {
+                    break; // exact fit, can't do better
                 }
-                return address;
             }
         }
-        // if not found
-        return -1;
+        return best;
+    }
+
+    /**
+     * Carves a block of the given length out of the beginning of the given free node,
+     * and adds it to allocatedList. Returns the base address of the allocated block.
+     */
+    private int allocateFrom(Node freeNode, int length) {
+        MemoryBlock freeBlock = freeNode.block;
+        int address = freeBlock.baseAddress;
+        int oldLength = freeBlock.length;
+        // allocate the new block
+        allocatedList.addLast(new MemoryBlock(address, length));
+        indexAllocated(allocatedList.getLast());
+
+        // update the free block
+        freeBlock.baseAddress += length;
+        freeBlock.length -= length;
+
+        // if freeBlock now has length 0, remove it from freeList
+        if (freeBlock.length == 0) {
+            removeFree(freeNode, address, oldLength);
+        } else {
+            resizedFree(freeNode, address, oldLength);
+        }
+        return address;
     }
 
     /**
      * Frees the memory block whose base address == address.
      * 1) If allocatedList is empty => throw new IllegalArgumentException("index must be between 0 and size");
-     * 2) Otherwise, search for the block in allocatedList:
+     * 2) Otherwise, look up the block in the index of allocatedList (by base address):
      *    - if found, remove it from allocatedList and add it to freeList (at the end)
      *    - if not found, do nothing.
+     *    If several blocks start at this address (see malloc), the first one in allocatedList is freed.
+     * In coalescing mode, the freed block is merged into freeList instead of being added at its end,
+     * and a block of non-positive length, which holds no memory, is not added to it at all.
      */
     public void free(int address) {
         if (allocatedList.getSize() == 0) {
@@ -58,56 +417,300 @@ public class MemorySpace {
             // but the code actually checks allocatedList is empty => throw
             throw new IllegalArgumentException("index must be between 0 and size");
         }
-        // search for the block
-        for (int i = 0; i < allocatedList.getSize(); i++) {
-            MemoryBlock block = allocatedList.getBlock(i);
-            if (block.baseAddress == address) {
-                // remove from allocatedList
-                allocatedList.remove(block);
-                // add to freeList
-                freeList.addLast(new MemoryBlock(block.baseAddress, block.length));
-                return;
+        Node node = allocatedIndex.remove(address);
+        if (node == null) {
+            // if not found => do nothing
+            return;
+        }
+        // remove from allocatedList
+        snapshot = null;
+        allocatedList.remove(node);
+        if (sharedAddresses.containsKey(address)) {
+            reindexAllocated(address);
+        }
+        // add to freeList
+        MemoryBlock block = node.block;
+        if (coalescing) {
+            if (block.length > 0) {
+                coalesceFree(block.baseAddress, block.length);
+            }
+        } else {
+            appendFree(new MemoryBlock(block.baseAddress, block.length));
+        }
+    }
+
+    /**
+     * Returns the range [baseAddress, baseAddress + length) to the sorted freeList,
+     * merging it with the free blocks that end where it starts and start where it ends.
+     */
+    private void coalesceFree(int baseAddress, int length) {
+        Node prev = freeIndex.lastBefore(baseAddress);
+        Node next = (prev == null) ? freeList.getFirst() : prev.next;
+        boolean mergePrev = prev != null && prev.block.baseAddress + prev.block.length == baseAddress;
+        boolean mergeNext = next != null && baseAddress + length == next.block.baseAddress;
+        if (mergePrev) {
+            int oldLength = prev.block.length;
+            prev.block.length += length;
+            if (mergeNext) {
+                prev.block.length += next.block.length;
+                removeFree(next, next.block.baseAddress, next.block.length);
             }
+            resizedFree(prev, prev.block.baseAddress, oldLength);
+        } else if (mergeNext) {
+            int oldBase = next.block.baseAddress;
+            int oldLength = next.block.length;
+            next.block.baseAddress = baseAddress;
+            next.block.length += length;
+            resizedFree(next, oldBase, oldLength);
+        } else {
+            insertFree(prev, new MemoryBlock(baseAddress, length));
+        }
+    }
+
+    /**
+     * Changes the length of the allocated block whose base address == address to newLength,
+     * and returns its (possibly new) base address:
+     * 1) If the block shrinks, it stays in place, and its tail is returned to freeList
+     *    (merged into the free block that starts right after it, if there is one).
+     * 2) If the block grows and the free block that starts right after it is long enough,
+     *    the block grows in place, into the beginning of that free block.
+     * 3) Otherwise, a new block is allocated (see malloc), and then the old block is freed.
+     * The free block after the block is found by its base address, without scanning freeList.
+     * The index of the free blocks by base address is built by the first call, so that the mallocs
+     * and frees of a memory space where realloc is never called don't maintain it.
+     * Returns -1, and leaves the block unchanged, if no block is allocated at this address,
+     * if newLength is not positive, or if a new block can't be allocated.
+     */
+    public int realloc(int address, int newLength) {
+        Node node = allocatedIndex.get(address);
+        if (node == null || newLength <= 0) {
+            return -1;
+        }
+        MemoryBlock block = node.block;
+        int oldLength = block.length;
+        int end = address + oldLength;
+        Node next = freeStarts().get(end);
+        if (newLength < oldLength) {
+            block.length = newLength;
+            int tail = oldLength - newLength;
+            if (coalescing) {
+                coalesceFree(address + newLength, tail);
+            } else if (next != null) {
+                int nextLength = next.block.length;
+                next.block.baseAddress -= tail;
+                next.block.length += tail;
+                resizedFree(next, end, nextLength);
+            } else {
+                appendFree(new MemoryBlock(address + newLength, tail));
+            }
+        } else if (newLength > oldLength) {
+            int needed = newLength - oldLength;
+            if (next == null || next.block.length < needed) {
+                int newAddress = malloc(newLength);
+                if (newAddress != -1) {
+                    free(address);
+                }
+                return newAddress;
+            }
+            int nextLength = next.block.length;
+            next.block.baseAddress += needed;
+            next.block.length -= needed;
+            if (next.block.length == 0) {
+                removeFree(next, end, nextLength);
+            } else {
+                resizedFree(next, end, nextLength);
+            }
+            block.length = newLength;
+        }
+        return address;
+    }
+
+    /**
+     * Compacts the memory: slides the allocated blocks toward the base address, keeping their
+     * address order, so that all the free memory becomes a single block at the end.
+     * The listener (if not null) is told about each block that moves, in increasing address order,
+     * so that whoever holds the old addresses can update them (see HandleMemorySpace).
+     * allocatedList keeps its order. Takes O(k log k) time, where k is the number of allocated blocks,
+     * whatever the number of free blocks.
+     */
+    public void compact(RelocationListener listener) {
+        Node[] nodes = new Node[allocatedList.getSize()];
+        int i = 0;
+        for (Node current = allocatedList.getFirst(); current != null; current = current.next) {
+            nodes[i++] = current;
+        }
+        java.util.Arrays.sort(nodes, (a, b) -> Integer.compare(a.block.baseAddress, b.block.baseAddress));
+        int address = baseAddress;
+        for (Node node : nodes) {
+            MemoryBlock block = node.block;
+            int oldAddress = block.baseAddress;
+            if (oldAddress != address) {
+                block.baseAddress = address;
+                if (listener != null) {
+                    listener.relocated(oldAddress, address, block.length);
+                }
+            }
+            address += block.length;
+        }
+        // the moved blocks are reindexed in allocatedList order, which decides between blocks that share an address
+        allocatedIndex.clear();
+        sharedAddresses = new IntIntMap();
+        for (Node current = allocatedList.getFirst(); current != null; current = current.next) {
+            indexAllocated(current);
+        }
+        freeList = new LinkedList();
+        if (address < baseAddress + maxSize) {
+            freeList.addLast(new MemoryBlock(address, baseAddress + maxSize - address));
         }
-        // if not found => do nothing
+        reindexFree();
     }
 
     /**
      * Performs defragmentation of the freeList:
      * 1) If freeList size < 2 => do nothing
-     * 2) gather the free blocks in an array, sort by baseAddress
-     * 3) rebuild freeList in sorted order
-     * 4) merge consecutive blocks
+     * 2) sort freeList by baseAddress (by relinking its nodes)
+     * 3) merge consecutive blocks, in a single pass
+     * In coalescing mode, freeList is always defragmented, so this does nothing.
      */
     public void defrag() {
-        if (freeList.getSize() < 2) {
+        if (coalescing || freeList.getSize() < 2) {
             return;
         }
-        // gather
-        java.util.ArrayList<MemoryBlock> blocks = new java.util.ArrayList<>();
-        for (int i = 0; i < freeList.getSize(); i++) {
-            blocks.add(freeList.getBlock(i));
+        freeList.sortByBaseAddress();
+        freeList.mergeAdjacentBlocks();
+        reindexFree();
+    }
+
+    /**
+     * Adds the given node of allocatedList to allocatedIndex, unless an older node has the same
+     * base address (which only happens around blocks of non-positive length, see malloc).
+     */
+    private void indexAllocated(Node node) {
+        Node older = allocatedIndex.put(node.block.baseAddress, node);
+        if (older != null) {
+            allocatedIndex.put(older.block.baseAddress, older);
+            sharedAddresses.put(older.block.baseAddress, sharedAddresses.get(older.block.baseAddress, 0) + 1);
         }
-        // sort by base
-        blocks.sort((a,b)->Integer.compare(a.baseAddress, b.baseAddress));
-        // rebuild freeList
-        freeList = new LinkedList();
-        for (MemoryBlock mb : blocks) {
-            freeList.addLast(mb);
+    }
+
+    /**
+     * Indexes the first node of allocatedList whose block starts at the given address, which is
+     * shared by an allocated node left out of allocatedIndex. Only the frees of such addresses scan allocatedList.
+     */
+    private void reindexAllocated(int address) {
+        for (Node current = allocatedList.getFirst(); current != null; current = current.next) {
+            if (current.block.baseAddress == address) {
+                allocatedIndex.put(address, current);
+                int shared = sharedAddresses.remove(address, 0);
+                if (shared > 1) {
+                    sharedAddresses.put(address, shared - 1);
+                }
+                return;
+            }
         }
-        // merge consecutive
-        int i = 0;
-        while (i < freeList.getSize() - 1) {
-            MemoryBlock curr = freeList.getBlock(i);
-            MemoryBlock nxt = freeList.getBlock(i+1);
-            if (curr.baseAddress + curr.length == nxt.baseAddress) {
-                // merge
-                curr.length += nxt.length;
-                freeList.remove(nxt);
-            } else {
-                i++;
+    }
+
+    /** Returns the index of freeList by base address, which is built the first time it is needed. */
+    private IntMap<Node> freeStarts() {
+        if (freeStarts == null) {
+            freeStarts = new IntMap<>();
+            for (Node current = freeList.getFirst(); current != null; current = current.next) {
+                freeStarts.put(current.block.baseAddress, current);
             }
         }
+        return freeStarts;
+    }
+
+    /*
+     * The following methods are the only ones that change freeList node by node.
+     * They keep the policy's structures (free index, size bins, rover, rescue cursor) and freeStarts (once built) in sync with it.
+     * They discard the cached snapshot, and so do the changes to allocatedList that come with them
+     * (in malloc, realloc and compact). free discards it itself, since in coalescing mode freeing
+     * a block of non-positive length leaves freeList unchanged.
+     */
+
+    /** Adds the given block at the end of freeList. */
+    private void appendFree(MemoryBlock block) {
+        snapshot = null;
+        freeList.addLast(block);
+        if (freeStarts != null) {
+            freeStarts.put(block.baseAddress, freeList.getLast());
+        }
+        if (freeIndex != null) {
+            freeIndex.addLast(freeList.getLast());
+        }
+        if (freeBins != null) {
+            freeBins.add(freeList.getLast());
+        }
+    }
+
+    /**
+     * Inserts the given block into freeList, right after the given node (or first, if prev is null),
+     * and returns its node.
+     */
+    private Node insertFree(Node prev, MemoryBlock block) {
+        snapshot = null;
+        Node node = freeList.addAfter(prev, block);
+        if (freeStarts != null) {
+            freeStarts.put(block.baseAddress, node);
+        }
+        if (freeIndex != null) {
+            freeIndex.addAfter(prev, node);
+        }
+        if (freeBins != null) {
+            freeBins.add(node);
+        }
+        return node;
+    }
+
+    /** Removes the given node, whose block was (oldBase , oldLength) when it was last indexed, from freeList. */
+    private void removeFree(Node freeNode, int oldBase, int oldLength) {
+        snapshot = null;
+        if (rover == freeNode) {
+            rover = freeNode.next;
+        }
+        if (rescueCursor == freeNode) {
+            rescueCursor = freeNode.next;
+        }
+        freeList.remove(freeNode);
+        if (freeStarts != null) {
+            freeStarts.remove(oldBase);
+        }
+        if (freeIndex != null) {
+            freeIndex.remove(freeNode);
+        }
+        if (freeBins != null) {
+            freeBins.remove(freeNode, oldLength);
+        }
+    }
+
+    /** Must be called after the block of the given free node changed from (oldBase , oldLength). */
+    private void resizedFree(Node freeNode, int oldBase, int oldLength) {
+        snapshot = null;
+        if (freeStarts != null && freeNode.block.baseAddress != oldBase) {
+            freeStarts.remove(oldBase);
+            freeStarts.put(freeNode.block.baseAddress, freeNode);
+        }
+        if (freeIndex != null) {
+            freeIndex.update(freeNode);
+        }
+        if (freeBins != null) {
+            freeBins.resized(freeNode, oldLength);
+        }
+    }
+
+    /** Rebuilds the policy's structures after freeList was rebuilt as a whole. */
+    private void reindexFree() {
+        snapshot = null;
+        rover = null;
+        rescueCursor = null;
+        freeStarts = null; // rebuilt when it is needed again
+        if (freeIndex != null) {
+            freeIndex.build(freeList);
+        }
+        if (freeBins != null) {
+            freeBins.build(freeList);
+        }
     }
 
     /**
@@ -0,0 +1,195 @@
+/*
+ * Replays an allocation trace on a memory space that uses each allocation policy,
+ * and reports the time it took and the fragmentation of the free memory that is left.
+ * 
+ * A trace is a sequence of integers: a positive n means malloc(n), and a negative -k
+ * means freeing the block returned by the k-th malloc of the trace (if it succeeded).
+ * 
+ * Usage: java MemorySpaceBenchmark [traceFile]
+ * Without a trace file, a random trace (mostly small blocks, some large ones) is replayed.
+ * 
+ * Usage: java MemorySpaceBenchmark engines [traceFile]
+ * Replays the trace (or the random trace) once per AllocatorEngine instead of once per policy.
+ * 
+ * Usage: java MemorySpaceBenchmark defrag
+ * Times the defragmentation of free lists of 1K to 1M fragments, given in random address order.
+ */
+public class MemorySpaceBenchmark {
+
+    private static final int MEMORY_SIZE = 1 << 20;
+
+    public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("defrag")) {
+            defragScaling(1 << 10, 1 << 20);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("engines")) {
+            int[] trace = (args.length > 1) ? new In(args[1]).readAllInts() : randomTrace(10000, 42);
+            compareEngines(trace, MEMORY_SIZE);
+            return;
+        }
+        int[] trace = (args.length > 0) ? new In(args[0]).readAllInts() : randomTrace(10000, 42);
+        comparePolicies(trace, MEMORY_SIZE);
+    }
+
+    /** Replays the given trace once per allocation policy, and prints one line of results per policy. */
+    public static void comparePolicies(int[] trace, int memorySize) {
+        System.out.printf("%-18s %10s %9s %12s %14s%n",
+                          "policy", "time (ms)", "failures", "free blocks", "fragmentation");
+        for (AllocationPolicy policy : AllocationPolicy.values()) {
+            MemorySpace memory = new MemorySpace(memorySize, policy);
+            long start = System.nanoTime();
+            int failures = replay(memory, trace);
+            long elapsed = System.nanoTime() - start;
+            System.out.printf("%-18s %10.1f %9d %12d %14.3f%n",
+                              policy, elapsed / 1e6, failures, memory.getFreeBlockCount(), fragmentation(memory));
+        }
+    }
+
+    /**
+     * Replays the given trace once per allocator engine, and prints one line of results per engine.
+     * The allocated column is the total length of the blocks that are still allocated at the end,
+     * which includes the rounding of the engines that round up the requested lengths.
+     */
+    public static void compareEngines(int[] trace, int memorySize) {
+        System.out.printf("%-18s %10s %9s %12s %12s %14s%n",
+                          "engine", "time (ms)", "failures", "free blocks", "allocated", "fragmentation");
+        for (AllocatorEngine engine : AllocatorEngine.values()) {
+            InspectableAllocator memory = engine.create(memorySize);
+            long start = System.nanoTime();
+            int failures = replay(memory, trace);
+            long elapsed = System.nanoTime() - start;
+            MemorySpaceSnapshot snapshot = memory.snapshot();
+            System.out.printf("%-18s %10.1f %9d %12d %12d %14.3f%n", engine, elapsed / 1e6, failures,
+                              snapshot.getFreeBlockCount(), snapshot.getAllocatedSize(), fragmentation(snapshot));
+        }
+    }
+
+    /**
+     * Times the two passes of defrag (sorting the free list and merging adjacent blocks) on
+     * free lists of n shuffled fragments, for n = minFragments, 2 * minFragments, ..., maxFragments.
+     * Every other fragment is contiguous to the next one, so half of the fragments get merged.
+     * Each size is timed 3 times, after a warm-up, and the fastest run is reported. The last column
+     * would stay flat if every step cost the same; it still rises with n, because the shuffled nodes
+     * of larger lists miss the CPU caches more often.
+     */
+    public static void defragScaling(int minFragments, int maxFragments) {
+        java.util.Random random = new java.util.Random(42);
+        for (int i = 0; i < 20; i++) {
+            timeDefrag(shuffledFragments(minFragments, random));
+        }
+        System.out.printf("%10s %12s %14s %16s%n", "fragments", "time (ms)", "after merge", "ns / (n log n)");
+        for (int n = minFragments; n <= maxFragments; n *= 2) {
+            long elapsed = Long.MAX_VALUE;
+            int merged = 0;
+            for (int run = 0; run < 3; run++) {
+                LinkedList freeList = shuffledFragments(n, random);
+                elapsed = Math.min(elapsed, timeDefrag(freeList));
+                merged = freeList.getSize();
+            }
+            double log = Math.log(n) / Math.log(2);
+            System.out.printf("%10d %12.1f %14d %16.2f%n", n, elapsed / 1e6, merged, elapsed / (n * log));
+        }
+    }
+
+    // Returns a free list of n fragments in random order, where fragments 2p and 2p + 1 are
+    // (4p , 1) and (4p + 1 , 2), which merge into (4p , 3)
+    private static LinkedList shuffledFragments(int n, java.util.Random random) {
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int temp = order[i];
+            order[i] = order[j];
+            order[j] = temp;
+        }
+        LinkedList freeList = new LinkedList();
+        for (int i : order) {
+            int pair = i / 2;
+            freeList.addLast((i % 2 == 0) ? new MemoryBlock(4 * pair, 1) : new MemoryBlock(4 * pair + 1, 2));
+        }
+        return freeList;
+    }
+
+    // Returns the time, in ns, that the two passes of defrag take on the given free list
+    private static long timeDefrag(LinkedList freeList) {
+        long start = System.nanoTime();
+        freeList.sortByBaseAddress();
+        freeList.mergeAdjacentBlocks();
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * Replays the given trace on the given memory space, and returns the number of failed mallocs.
+     * @throws IllegalArgumentException if the trace contains 0, or frees a malloc that comes later in the trace
+     */
+    public static int replay(MemoryAllocator memory, int[] trace) {
+        int[] addresses = new int[trace.length];
+        int mallocs = 0;
+        int failures = 0;
+        for (int op : trace) {
+            if (op > 0) {
+                int address = memory.malloc(op);
+                addresses[mallocs++] = address;
+                if (address == -1) {
+                    failures++;
+                }
+            } else {
+                if (op == 0 || -op > mallocs) {
+                    throw new IllegalArgumentException("invalid trace operation: " + op);
+                }
+                int address = addresses[-op - 1];
+                if (address != -1) {
+                    memory.free(address);
+                }
+            }
+        }
+        return failures;
+    }
+
+    /**
+     * Returns the external fragmentation of the given memory space: 1 - (largest free block / total free),
+     * i.e. 0 when all the free memory is in one block, and close to 1 when it is scattered in small holes.
+     */
+    public static double fragmentation(MemorySpace memory) {
+        int free = memory.getFreeSize();
+        return (free == 0) ? 0 : 1 - (double) memory.getLargestFreeBlock() / free;
+    }
+
+    /** Returns the external fragmentation of the free blocks of the given snapshot (see fragmentation(MemorySpace)). */
+    public static double fragmentation(MemorySpaceSnapshot snapshot) {
+        int free = snapshot.getFreeSize();
+        return (free == 0) ? 0 : 1 - (double) snapshot.getLargestFreeBlock() / free;
+    }
+
+    /** Returns a random trace of 'ops' operations, where about 55% of the operations are mallocs. */
+    public static int[] randomTrace(int ops, long seed) {
+        java.util.Random random = new java.util.Random(seed);
+        int[] trace = new int[ops];
+        int[] live = new int[ops]; // malloc numbers (1-based) that were not freed yet
+        int liveCount = 0;
+        int mallocs = 0;
+        for (int i = 0; i < ops; i++) {
+            if (liveCount == 0 || random.nextInt(100) < 55) {
+                int kind = random.nextInt(100);
+                int length;
+                if (kind < 70) {
+                    length = 1 + random.nextInt(64);
+                } else if (kind < 95) {
+                    length = 64 + random.nextInt(448);
+                } else {
+                    length = 512 + random.nextInt(3584);
+                }
+                trace[i] = length;
+                live[liveCount++] = ++mallocs;
+            } else {
+                int j = random.nextInt(liveCount);
+                trace[i] = -live[j];
+                live[j] = live[--liveCount];
+            }
+        }
+        return trace;
+    }
+}
@@ -0,0 +1,157 @@
+/**
+ * An immutable copy of the free and allocated lists of a memory space, taken at one moment.
+ * Once taken, a snapshot can be inspected and printed by any thread, at any time, without
+ * locking the memory space and without being affected by later mallocs and frees.
+ */
+public final class MemorySpaceSnapshot {
+
+    private final int[] freeBases;        // base address of each free block, in freeList order
+    private final int[] freeLengths;      // length of each free block
+    private final int[] allocatedBases;   // base address of each allocated block, in allocatedList order
+    private final int[] allocatedLengths; // length of each allocated block
+
+    /** Takes a snapshot of the given free and allocated lists. */
+    MemorySpaceSnapshot(LinkedList freeList, LinkedList allocatedList) {
+        freeBases = new int[freeList.getSize()];
+        freeLengths = new int[freeList.getSize()];
+        copy(freeList, freeBases, freeLengths, 0);
+        allocatedBases = new int[allocatedList.getSize()];
+        allocatedLengths = new int[allocatedList.getSize()];
+        copy(allocatedList, allocatedBases, allocatedLengths, 0);
+    }
+
+    /** Takes a snapshot made of the given arrays, which must not be changed afterwards. */
+    MemorySpaceSnapshot(int[] freeBases, int[] freeLengths, int[] allocatedBases, int[] allocatedLengths) {
+        this.freeBases = freeBases;
+        this.freeLengths = freeLengths;
+        this.allocatedBases = allocatedBases;
+        this.allocatedLengths = allocatedLengths;
+    }
+
+    /**
+     * Returns a snapshot whose free blocks are the free blocks of the given snapshots,
+     * and whose allocated blocks are their allocated blocks, snapshot after snapshot.
+     */
+    public static MemorySpaceSnapshot concat(MemorySpaceSnapshot[] snapshots) {
+        int freeCount = 0;
+        int allocatedCount = 0;
+        for (MemorySpaceSnapshot snapshot : snapshots) {
+            freeCount += snapshot.freeBases.length;
+            allocatedCount += snapshot.allocatedBases.length;
+        }
+        int[] freeBases = new int[freeCount];
+        int[] freeLengths = new int[freeCount];
+        int[] allocatedBases = new int[allocatedCount];
+        int[] allocatedLengths = new int[allocatedCount];
+        int f = 0;
+        int a = 0;
+        for (MemorySpaceSnapshot snapshot : snapshots) {
+            int n = snapshot.freeBases.length;
+            System.arraycopy(snapshot.freeBases, 0, freeBases, f, n);
+            System.arraycopy(snapshot.freeLengths, 0, freeLengths, f, n);
+            f += n;
+            n = snapshot.allocatedBases.length;
+            System.arraycopy(snapshot.allocatedBases, 0, allocatedBases, a, n);
+            System.arraycopy(snapshot.allocatedLengths, 0, allocatedLengths, a, n);
+            a += n;
+        }
+        return new MemorySpaceSnapshot(freeBases, freeLengths, allocatedBases, allocatedLengths);
+    }
+
+    /** Returns the number of free blocks. */
+    public int getFreeBlockCount() {
+        return freeBases.length;
+    }
+
+    /** Returns the base address of the i-th free block. */
+    public int getFreeBase(int i) {
+        return freeBases[i];
+    }
+
+    /** Returns the length of the i-th free block. */
+    public int getFreeLength(int i) {
+        return freeLengths[i];
+    }
+
+    /** Returns the number of allocated blocks. */
+    public int getAllocatedBlockCount() {
+        return allocatedBases.length;
+    }
+
+    /** Returns the base address of the i-th allocated block. */
+    public int getAllocatedBase(int i) {
+        return allocatedBases[i];
+    }
+
+    /** Returns the length of the i-th allocated block. */
+    public int getAllocatedLength(int i) {
+        return allocatedLengths[i];
+    }
+
+    /** Returns the total length of the free blocks. */
+    public int getFreeSize() {
+        int total = 0;
+        for (int length : freeLengths) {
+            total += length;
+        }
+        return total;
+    }
+
+    /** Returns the total length of the allocated blocks. */
+    public int getAllocatedSize() {
+        int total = 0;
+        for (int length : allocatedLengths) {
+            total += length;
+        }
+        return total;
+    }
+
+    /** Returns the length of the longest free block (0 if there are no free blocks). */
+    public int getLargestFreeBlock() {
+        int largest = 0;
+        for (int length : freeLengths) {
+            largest = Math.max(largest, length);
+        }
+        return largest;
+    }
+
+    /** Returns the free blocks, then "\n", then the allocated blocks, in the format of MemorySpace.toString. */
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        append(sb, freeBases, freeLengths);
+        sb.append("\n");
+        append(sb, allocatedBases, allocatedLengths);
+        return sb.toString();
+    }
+
+    /**
+     * Copies the blocks of the given list into bases and lengths, from index 'from' on,
+     * and returns the index after the last copied block.
+     */
+    static int copy(LinkedList list, int[] bases, int[] lengths, int from) {
+        int i = from;
+        for (Node current = list.getFirst(); current != null; current = current.next) {
+            bases[i] = current.block.baseAddress;
+            lengths[i] = current.block.length;
+            i++;
+        }
+        return i;
+    }
+
+    /** Copies the blocks of the given list like copy(LinkedList, int[], int[], int). */
+    static int copy(BlockArrayList list, int[] bases, int[] lengths, int from) {
+        int i = from;
+        for (int slot = list.getFirst(); slot != BlockArrayList.NIL; slot = list.next(slot)) {
+            bases[i] = list.getBase(slot);
+            lengths[i] = list.getLength(slot);
+            i++;
+        }
+        return i;
+    }
+
+    private static void append(StringBuilder sb, int[] bases, int[] lengths) {
+        for (int i = 0; i < bases.length; i++) {
+            sb.append("(").append(bases[i]).append(" , ").append(lengths[i]).append(") ");
+        }
+    }
+}
@@ -0,0 +1,81 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+/**
+ * A BlockStorage that keeps its ints in a direct (off-heap) buffer, so the garbage collector
+ * never sees the blocks: the heap holds only this object and its buffer, whatever the number of slots.
+ * The buffer is divided into four consecutive regions of 'capacity' ints: the base addresses,
+ * the lengths, the next slots, and the previous slots.
+ */
+public class OffHeapBlockStorage implements BlockStorage {
+
+    private static final int FIELDS = 4;
+
+    private IntBuffer ints; // view of the direct buffer as ints
+    private int capacity;   // number of slots
+
+    /** Constructs a storage of the given number of slots. */
+    public OffHeapBlockStorage(int capacity) {
+        this.capacity = capacity;
+        ints = allocate(capacity);
+    }
+
+    /** Returns the number of off-heap bytes used by this storage. */
+    public long offHeapBytes() {
+        return (long) FIELDS * capacity * Integer.BYTES;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public void grow(int newCapacity) {
+        IntBuffer grown = allocate(newCapacity);
+        for (int field = 0; field < FIELDS; field++) {
+            for (int slot = 0; slot < capacity; slot++) {
+                grown.put(field * newCapacity + slot, ints.get(field * capacity + slot));
+            }
+        }
+        ints = grown;
+        capacity = newCapacity;
+    }
+
+    public int getBase(int slot) {
+        return ints.get(slot);
+    }
+
+    public int getLength(int slot) {
+        return ints.get(capacity + slot);
+    }
+
+    public int getNext(int slot) {
+        return ints.get(2 * capacity + slot);
+    }
+
+    public int getPrev(int slot) {
+        return ints.get(3 * capacity + slot);
+    }
+
+    public void setBase(int slot, int value) {
+        ints.put(slot, value);
+    }
+
+    public void setLength(int slot, int value) {
+        ints.put(capacity + slot, value);
+    }
+
+    public void setNext(int slot, int value) {
+        ints.put(2 * capacity + slot, value);
+    }
+
+    public void setPrev(int slot, int value) {
+        ints.put(3 * capacity + slot, value);
+    }
+
+    private static IntBuffer allocate(int capacity) {
+        return ByteBuffer.allocateDirect(FIELDS * capacity * Integer.BYTES)
+                         .order(ByteOrder.nativeOrder())
+                         .asIntBuffer();
+    }
+}
@@ -0,0 +1,185 @@
+/**
+ * A region (arena) allocator for allocations that all end together, e.g. the allocations of one request.
+ * A region reserves one block of a MemorySpace, and allocates inside it by bumping a pointer:
+ * an allocation takes O(1) time and keeps no metadata. The allocations can't be freed one by one;
+ * instead, reset() frees all of them at once, and release() returns the whole block to the
+ * memory space, both in O(1) time.
+ *
+ * A region can be nested in another region: the nested region reserves its block from its parent,
+ * and releasing it gives the block back to its parent if nothing was allocated after it there.
+ * Resetting or releasing a region also ends the regions nested in it.
+ */
+public class Region {
+
+    private final MemorySpace memory; // the memory space of the block (null for a nested region)
+    private final Region parent;      // the region of the block (null for a top-level region)
+    private final int baseAddress;    // base address of the block of this region
+    private final int capacity;       // length of the block of this region
+    private int top;                  // offset of the first free word of the block
+    private boolean released;
+    private int generation;           // number of resets of this region
+    private final int parentGeneration; // generation of the parent when this region was nested in it
+
+    // statistics, since the region was created or last reset
+    private int allocations;          // number of successful allocations
+    private int requested;            // total length requested by the successful allocations
+    private int failures;             // number of allocations that didn't fit
+    private int peak;                 // highest value of top
+
+    /**
+     * Constructs a region of the given capacity, whose block is allocated in the given memory space.
+     * @throws IllegalArgumentException if capacity is not positive, or the memory space has no room for the block
+     */
+    public Region(MemorySpace memory, int capacity) {
+        this(memory, null, (capacity > 0) ? memory.malloc(capacity) : -1, capacity);
+        if (baseAddress == -1) {
+            throw new IllegalArgumentException("no region of capacity " + capacity + " fits in the memory space");
+        }
+    }
+
+    private Region(MemorySpace memory, Region parent, int baseAddress, int capacity) {
+        this.memory = memory;
+        this.parent = parent;
+        this.baseAddress = baseAddress;
+        this.capacity = capacity;
+        parentGeneration = (parent == null) ? 0 : parent.generation;
+    }
+
+    /**
+     * Returns a new region of the given capacity, nested in this region,
+     * or null if this region has no room for it.
+     */
+    public Region nested(int capacity) {
+        int address = allocate(capacity);
+        return (address == -1) ? null : new Region(null, this, address, capacity);
+    }
+
+    /**
+     * Allocates 'length' words, at the current top of this region.
+     * Returns the base address of the allocated words, or -1 if they don't fit (or length is not positive).
+     * @throws IllegalStateException if the region (or a region it is nested in) was released or reset
+     */
+    public int allocate(int length) {
+        return allocate(length, 1);
+    }
+
+    /**
+     * Allocates 'length' words, whose base address is a multiple of 'alignment'.
+     * The words skipped to align the allocation are counted as waste.
+     * Returns the base address of the allocated words, or -1 if they don't fit (or length is not positive).
+     * @throws IllegalStateException if the region (or a region it is nested in) was released or reset
+     */
+    public int allocate(int length, int alignment) {
+        if (!isAlive()) {
+            throw new IllegalStateException("the region was released or reset");
+        }
+        if (alignment <= 0) {
+            throw new IllegalArgumentException("alignment must be positive");
+        }
+        if (length <= 0) {
+            return -1;
+        }
+        int padding = Math.floorMod(-(baseAddress + top), alignment);
+        if ((long) top + padding + length > capacity) {
+            failures++;
+            return -1;
+        }
+        int address = baseAddress + top + padding;
+        top += padding + length;
+        peak = Math.max(peak, top);
+        allocations++;
+        requested += length;
+        return address;
+    }
+
+    /**
+     * Frees all the allocations of this region (and the regions nested in it) at once,
+     * and resets its statistics.
+     */
+    public void reset() {
+        generation++;
+        top = 0;
+        allocations = 0;
+        requested = 0;
+        failures = 0;
+        peak = 0;
+    }
+
+    /**
+     * Releases the block of this region: a top-level region frees it in its memory space, and a
+     * nested region gives it back to its parent if it is the last allocation there (otherwise its
+     * block stays used until the parent is reset). The region can't be used after it is released.
+     */
+    public void release() {
+        if (released) {
+            return;
+        }
+        released = true;
+        if (parent == null) {
+            memory.free(baseAddress);
+        } else if (isParentAlive() && parent.baseAddress + parent.top == baseAddress + capacity) {
+            parent.top = baseAddress - parent.baseAddress;
+            parent.requested -= capacity;
+        }
+    }
+
+    /** Returns true if this region and all the regions it is nested in can still be used. */
+    public boolean isAlive() {
+        return !released && (parent == null || isParentAlive());
+    }
+
+    // Returns true if the parent is alive and was not reset since this region was nested in it
+    private boolean isParentAlive() {
+        return parent.generation == parentGeneration && parent.isAlive();
+    }
+
+    /** Returns the base address of the block of this region. */
+    public int getBaseAddress() {
+        return baseAddress;
+    }
+
+    /** Returns the length of the block of this region. */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /** Returns the number of words used by the allocations (including their alignment waste). */
+    public int getUsed() {
+        return top;
+    }
+
+    /** Returns the number of words that are still free. */
+    public int getRemaining() {
+        return capacity - top;
+    }
+
+    /** Returns the number of words that were skipped to align allocations. */
+    public int getWaste() {
+        return top - requested;
+    }
+
+    /** Returns the number of successful allocations. */
+    public int getAllocationCount() {
+        return allocations;
+    }
+
+    /** Returns the number of allocations that didn't fit. */
+    public int getFailureCount() {
+        return failures;
+    }
+
+    /** Returns the highest number of words that were used at once. */
+    public int getPeakUsed() {
+        return peak;
+    }
+
+    /**
+     * Returns the free part of the block, then "\n", then its used part,
+     * in the format of MemorySpace.toString.
+     */
+    public String toString() {
+        String free = (top < capacity) ? "(" + (baseAddress + top) + " , " + (capacity - top) + ") " : "";
+        String used = (top > 0) ? "(" + baseAddress + " , " + top + ") " : "";
+        return free + "\n" + used;
+    }
+}
@@ -0,0 +1,8 @@
+/**
+ * Receives the blocks that a MemorySpace moves when it compacts its memory (see MemorySpace.compact).
+ */
+public interface RelocationListener {
+
+    /** Called after the block of the given length was moved from oldAddress to newAddress. */
+    void relocated(int oldAddress, int newAddress, int length);
+}
@@ -0,0 +1,85 @@
+import java.util.LinkedHashSet;
+
+/**
+ * Size-segregated bins over the nodes of a free list.
+ * Bin k holds the free nodes whose block length is in [2^k, 2^(k+1)), in the order
+ * in which they entered the bin. A bitmap of the non-empty bins lets a fitting block
+ * be found without looking at any block that is too small, except in the request's own bin.
+ */
+public class SegregatedFreeBins {
+
+    private static final int BINS = 32;
+
+    private final LinkedHashSet<Node>[] bins; // bin k holds the nodes of size class k
+    private int nonEmpty;                     // bit k is set iff bin k is not empty
+
+    /** Constructs empty bins. */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public SegregatedFreeBins() {
+        bins = new LinkedHashSet[BINS];
+        for (int i = 0; i < BINS; i++) {
+            bins[i] = new LinkedHashSet<>();
+        }
+    }
+
+    /** Returns the size class of the given length: floor(log2(length)), or 0 if length < 2. */
+    public static int sizeClass(int length) {
+        return (length < 2) ? 0 : 31 - Integer.numberOfLeadingZeros(length);
+    }
+
+    /** Rebuilds these bins from scratch, so that they hold all the nodes of the given list. */
+    public void build(LinkedList list) {
+        for (int i = 0; i < BINS; i++) {
+            bins[i].clear();
+        }
+        nonEmpty = 0;
+        for (Node current = list.getFirst(); current != null; current = current.next) {
+            add(current);
+        }
+    }
+
+    /** Adds the given free node to the bin of its block length. */
+    public void add(Node node) {
+        int k = sizeClass(node.block.length);
+        bins[k].add(node);
+        nonEmpty |= 1 << k;
+    }
+
+    /** Removes the given free node, whose block length was 'length' when it was binned. */
+    public void remove(Node node, int length) {
+        int k = sizeClass(length);
+        bins[k].remove(node);
+        if (bins[k].isEmpty()) {
+            nonEmpty &= ~(1 << k);
+        }
+    }
+
+    /** Moves the given free node to its new bin, after its block length changed from 'oldLength'. */
+    public void resized(Node node, int oldLength) {
+        if (sizeClass(oldLength) != sizeClass(node.block.length)) {
+            remove(node, oldLength);
+            add(node);
+        }
+    }
+
+    /**
+     * Returns a free node whose block length is at least 'length', or null if there is none.
+     * The request's own bin is searched first (its blocks may be too small); otherwise,
+     * the first node of the smallest non-empty larger bin is returned.
+     */
+    public Node fit(int length) {
+        int k = sizeClass(length);
+        if ((nonEmpty & (1 << k)) != 0) {
+            for (Node node : bins[k]) {
+                if (node.block.length >= length) {
+                    return node;
+                }
+            }
+        }
+        int larger = (k == BINS - 1) ? 0 : nonEmpty & (-1 << (k + 1));
+        if (larger == 0) {
+            return null;
+        }
+        return bins[Integer.numberOfTrailingZeros(larger)].iterator().next();
+    }
+}
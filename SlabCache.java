@@ -0,0 +1,219 @@
+/**
+ * A cache of fixed-size objects on top of a MemorySpace.
+ * The cache allocates large chunks (slabs) from the memory space, and subdivides each slab
+ * into objectsPerSlab objects of objectSize words, whose state is tracked by a bitmap per slab.
+ * Allocating or freeing an object only touches its slab, not the free list of the memory space.
+ * One empty slab is kept for the next allocations, and only the slabs that become empty while
+ * another empty slab is kept are returned to the memory space; so the memory space is used only
+ * when the number of objects in use crosses a slab boundary, not on every malloc and free around it.
+ * Use one cache per hot object size.
+ *
+ * Slabs are allocated with a plain malloc, so they leave no alignment gaps in the memory space.
+ * Since two slabs can't start less than a slab length apart, each chunk [k * L, (k + 1) * L) of
+ * the addresses (where L is the slab length) holds the base address of at most one slab, so the slab
+ * of an address is found in O(1) by looking up the slabs that start in its chunk and in the previous one.
+ */
+public class SlabCache implements MemoryAllocator {
+
+    private final MemorySpace memory;   // the memory space that the slabs are allocated from
+    private final int objectSize;       // length of each object, in words
+    private final int objectsPerSlab;   // number of objects in each slab
+    private final int slabLength;       // length of each slab, in words
+    private final IntMap<Slab> slabs;   // chunk (base address / slabLength) -> the slab that starts in it
+    private final java.util.ArrayList<Slab> allSlabs; // the slabs of this cache, in allocation order
+    private Slab partial;               // first slab that has free objects (null if none)
+    private Slab empty;                 // the empty slab kept for the next allocations (null if none)
+
+    /** A slab: a chunk of the memory space, and the state of each of its objects. */
+    private static class Slab {
+        final int baseAddress;
+        final long[] used;   // bit i of used[i / 64] is set iff object i is allocated
+        int usedCount;       // number of allocated objects
+        Slab prev;           // previous slab in the list of slabs that have free objects
+        Slab next;           // next slab in the list of slabs that have free objects
+        boolean listed;      // true if the slab is in the list of slabs that have free objects
+
+        Slab(int baseAddress, int objects) {
+            this.baseAddress = baseAddress;
+            used = new long[(objects + 63) / 64];
+            if (objects % 64 != 0) {
+                // the bits after the last object are set, so they never look free
+                used[used.length - 1] = -1L << (objects % 64);
+            }
+        }
+    }
+
+    /**
+     * Constructs a cache of objects of objectSize words, that allocates slabs of
+     * objectsPerSlab objects from the given memory space.
+     */
+    public SlabCache(MemorySpace memory, int objectSize, int objectsPerSlab) {
+        if (objectSize <= 0 || objectsPerSlab <= 0) {
+            throw new IllegalArgumentException("objectSize and objectsPerSlab must be positive");
+        }
+        int slabLength = Math.multiplyExact(objectSize, objectsPerSlab);
+        this.memory = memory;
+        this.objectSize = objectSize;
+        this.objectsPerSlab = objectsPerSlab;
+        this.slabLength = slabLength;
+        slabs = new IntMap<>();
+        allSlabs = new java.util.ArrayList<>();
+    }
+
+    /** Returns the number of slabs that this cache holds. */
+    public int getSlabCount() {
+        return slabs.size();
+    }
+
+    /**
+     * Allocates an object, if 'length' is between 1 and the object size: the first free object
+     * of a slab that has free objects (the kept empty slab last), or of a new slab allocated from the memory space.
+     * Returns the base address of the object, or -1 if the length doesn't fit or there is no room.
+     */
+    public int malloc(int length) {
+        if (length <= 0 || length > objectSize) {
+            return -1;
+        }
+        Slab slab = (partial != null) ? partial : empty;
+        if (slab == null) {
+            int address = memory.malloc(slabLength);
+            if (address == -1) {
+                return -1;
+            }
+            slab = new Slab(address, objectsPerSlab);
+            slabs.put(Math.floorDiv(address, slabLength), slab);
+            allSlabs.add(slab);
+            link(slab);
+        } else if (slab == empty) {
+            empty = null;
+            link(slab);
+        }
+        int w = 0;
+        while (slab.used[w] == -1L) {
+            w++;
+        }
+        int bit = Long.numberOfTrailingZeros(~slab.used[w]);
+        slab.used[w] |= 1L << bit;
+        if (++slab.usedCount == objectsPerSlab) {
+            unlink(slab);
+        }
+        return slab.baseAddress + (w * 64 + bit) * objectSize;
+    }
+
+    /**
+     * Frees the object whose base address == address. If its slab becomes empty, it is kept for the
+     * next allocations if no other empty slab is kept, and otherwise returned to the memory space.
+     * Does nothing if the address is not the base address of an allocated object of this cache.
+     */
+    public void free(int address) {
+        Slab slab = slabOf(address);
+        if (slab == null) {
+            return;
+        }
+        int offset = address - slab.baseAddress;
+        int index = offset / objectSize;
+        if (offset % objectSize != 0 || index >= objectsPerSlab) {
+            return;
+        }
+        long mask = 1L << index;
+        if ((slab.used[index >>> 6] & mask) == 0) {
+            return; // already free
+        }
+        slab.used[index >>> 6] &= ~mask;
+        slab.usedCount--;
+        if (slab.usedCount == 0) {
+            unlink(slab);
+            if (empty == null) {
+                empty = slab;
+            } else {
+                release(slab);
+            }
+        } else if (!slab.listed) {
+            link(slab);
+        }
+    }
+
+    /** Returns the kept empty slab (if any) to the memory space, and defragments the memory space. */
+    public void defrag() {
+        if (empty != null) {
+            release(empty);
+            empty = null;
+        }
+        memory.defrag();
+    }
+
+    /**
+     * Returns the free objects of the slabs that have free objects (the kept empty slab last), then "\n",
+     * then the allocated objects of all the slabs (slab after slab, in the order they were allocated),
+     * in the format of MemorySpace.toString.
+     */
+    public String toString() {
+        StringBuilder free = new StringBuilder();
+        StringBuilder allocated = new StringBuilder();
+        for (Slab slab = partial; slab != null; slab = slab.next) {
+            appendObjects(free, slab, false);
+        }
+        if (empty != null) {
+            appendObjects(free, empty, false);
+        }
+        for (Slab slab : allSlabs) {
+            appendObjects(allocated, slab, true);
+        }
+        return free + "\n" + allocated;
+    }
+
+    // Returns the slab that contains the given address, or null if none
+    private Slab slabOf(int address) {
+        int chunk = Math.floorDiv(address, slabLength);
+        Slab slab = slabs.get(chunk);
+        if (slab == null || slab.baseAddress > address) {
+            slab = slabs.get(chunk - 1);
+        }
+        return (slab != null && address - slab.baseAddress < slabLength) ? slab : null;
+    }
+
+    // Forgets the given (empty and unlisted) slab, and frees it in the memory space
+    private void release(Slab slab) {
+        slabs.remove(Math.floorDiv(slab.baseAddress, slabLength));
+        allSlabs.remove(slab); // O(number of slabs), but only when a slab is returned
+        memory.free(slab.baseAddress);
+    }
+
+    // Appends the objects of the given slab that are allocated (or free)
+    private void appendObjects(StringBuilder sb, Slab slab, boolean allocated) {
+        for (int i = 0; i < objectsPerSlab; i++) {
+            if (((slab.used[i >>> 6] & (1L << i)) != 0) == allocated) {
+                sb.append("(").append(slab.baseAddress + i * objectSize).append(" , ").append(objectSize).append(") ");
+            }
+        }
+    }
+
+    // Adds the given slab at the beginning of the list of slabs that have free objects
+    private void link(Slab slab) {
+        slab.prev = null;
+        slab.next = partial;
+        if (partial != null) {
+            partial.prev = slab;
+        }
+        partial = slab;
+        slab.listed = true;
+    }
+
+    // Removes the given slab from the list of slabs that have free objects
+    private void unlink(Slab slab) {
+        if (!slab.listed) {
+            return;
+        }
+        if (slab.prev == null) {
+            partial = slab.next;
+        } else {
+            slab.prev.next = slab.next;
+        }
+        if (slab.next != null) {
+            slab.next.prev = slab.prev;
+        }
+        slab.prev = null;
+        slab.next = null;
+        slab.listed = false;
+    }
+}
@@ -0,0 +1,722 @@
+public class TestAllocators {
+
+    public static void main(String[] args) {
+        testAll();
+    }
+
+    private static void testAll() {
+        testArrayMemorySpace();
+        testOffHeapMemorySpace();
+        testConcurrentMemorySpace();
+        testConcurrentMemorySpaceThreads();
+        testConcurrentSnapshot();
+        testConcurrentBatch();
+        testThreadCache();
+        testThreadCacheCrossThreadFree();
+        testThreadCacheProducerConsumer();
+        testBlockPool();
+        testBlockPoolThreads();
+        testBuddyMemorySpace();
+        testBuddyMergesEverything();
+        testBitmapMemorySpace();
+        testBitmapSameAsCoalescingMemorySpace();
+        testTlsfMemorySpace();
+        testTlsfKeepsMemoryConsistent();
+        testSlabCache();
+        testRegion();
+        testNestedRegion();
+        testHandleMemorySpace();
+        testAllocatorEngine();
+        testLongMemorySpace();
+
+        System.out.println("All tests completed successfully!");
+    }
+
+    private static void testArrayMemorySpace() {
+        ArrayMemorySpace memory = new ArrayMemorySpace(100);
+        assertEqual("(0 , 100) \n", memory.toString(), "Array memory space initialization");
+        assertSameAsMemorySpace(new ArrayMemorySpace(10000), 10000, "Array memory space");
+    }
+
+    private static void testOffHeapMemorySpace() {
+        ArrayMemorySpace memory = new ArrayMemorySpace(10000, true);
+        assertEqual(2 * 16 * 16, (int) memory.offHeapBytes(), "Initial off-heap bytes");
+        assertSameAsMemorySpace(memory, 10000, "Off-heap memory space");
+        assertEqual(true, memory.offHeapBytes() > 2 * 16 * 16, "Off-heap bytes after growing");
+        assertEqual(0, (int) new ArrayMemorySpace(100).offHeapBytes(), "Off-heap bytes of a heap memory space");
+    }
+
+    private static void testConcurrentMemorySpace() {
+        ConcurrentMemorySpace memory = new ConcurrentMemorySpace(100, 2, AllocationPolicy.FIRST_FIT);
+        assertEqual("(0 , 50) (50 , 50) \n", memory.toString(), "Concurrent memory space initialization");
+        int home = memory.malloc(40);
+        assertEqual(0, home, "The first thread gets the first arena");
+        int[] otherHome = new int[1];
+        Thread thread = new Thread(() -> otherHome[0] = memory.getHomeArena());
+        thread.start();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            throw new AssertionError("Interrupted");
+        }
+        assertEqual(1, otherHome[0], "The next thread gets the next arena");
+        int other = 50;
+        assertEqual(other, memory.malloc(40), "Falls back to the other arena");
+        assertEqual(-1, memory.malloc(20), "Fails when no arena has room");
+        memory.free(home);
+        memory.free(other);
+        memory.defrag();
+        assertEqual("(0 , 50) (50 , 50) \n", memory.toString(), "Arenas after freeing everything");
+    }
+
+    private static void testConcurrentMemorySpaceThreads() {
+        ConcurrentMemorySpace memory = new ConcurrentMemorySpace(1 << 16, 4, AllocationPolicy.FIRST_FIT);
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            final int seed = t;
+            threads[t] = new Thread(() -> {
+                java.util.Random random = new java.util.Random(seed);
+                int[] addresses = new int[50];
+                for (int round = 0; round < 200; round++) {
+                    for (int i = 0; i < addresses.length; i++) {
+                        addresses[i] = memory.malloc(1 + random.nextInt(16));
+                    }
+                    for (int address : addresses) {
+                        if (address != -1) {
+                            memory.free(address);
+                        }
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                throw new AssertionError("Interrupted");
+            }
+        }
+        memory.defrag();
+        assertEqual("(0 , 16384) (16384 , 16384) (32768 , 16384) (49152 , 16384) \n", memory.toString(),
+                    "Arenas after concurrent allocations and frees");
+    }
+
+    private static void testConcurrentSnapshot() {
+        ConcurrentMemorySpace memory = new ConcurrentMemorySpace(1 << 12, 4, AllocationPolicy.FIRST_FIT);
+        Thread[] threads = new Thread[3];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                int[] held = new int[16];
+                for (int round = 0; round < 500; round++) {
+                    for (int i = 0; i < held.length; i++) {
+                        held[i] = memory.malloc(1 + i);
+                    }
+                    for (int address : held) {
+                        memory.free(address);
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        // A monitoring thread: every snapshot must partition the whole memory space
+        boolean running = true;
+        while (running) {
+            running = false;
+            for (Thread thread : threads) {
+                running |= thread.isAlive();
+            }
+            MemorySpaceSnapshot snapshot = memory.snapshot();
+            int total = snapshot.getFreeSize();
+            for (int i = 0; i < snapshot.getAllocatedBlockCount(); i++) {
+                total += snapshot.getAllocatedLength(i);
+            }
+            assertEqual(1 << 12, total, "Snapshot taken during concurrent mallocs and frees covers the memory");
+        }
+        assertEqual(memory.toString(), memory.snapshot().toString(), "Snapshot has the format of toString");
+    }
+
+    private static void testConcurrentBatch() {
+        ConcurrentMemorySpace memory = new ConcurrentMemorySpace(100, 2, AllocationPolicy.FIRST_FIT);
+        int home = memory.getHomeArena() * 50; // base address of the home arena
+        int other = 50 - home;
+        int[] addresses = memory.mallocBatch(new int[] {20, 20, 20, 60});
+        assertEqual(home, addresses[0], "Batch malloc from the home arena");
+        assertEqual(home + 20, addresses[1], "Batch malloc from the home arena");
+        assertEqual(other, addresses[2], "Batch malloc falls back to the other arena");
+        assertEqual(-1, addresses[3], "Batch malloc larger than every arena");
+        memory.freeBatch(new int[] {addresses[2], addresses[0], -1, 1000});
+        memory.defrag();
+        assertEqual(home == 0 ? "(0 , 20) (40 , 10) (50 , 50) \n(20 , 20) " : "(0 , 50) (50 , 20) (90 , 10) \n(70 , 20) ",
+                    memory.toString(), "State after batch free");
+    }
+
+    private static void testThreadCache() {
+        ConcurrentMemorySpace backing = new ConcurrentMemorySpace(100, 1, AllocationPolicy.FIRST_FIT);
+        ThreadCachedMemorySpace memory = new ThreadCachedMemorySpace(backing, 2, 100);
+        int a = memory.malloc(10);
+        int b = memory.malloc(10);
+        int c = memory.malloc(20);
+        memory.free(a);
+        memory.free(a); // freeing a cached block again does nothing
+        memory.free(b);
+        memory.free(c); // the cache is full, so c goes back to the backing memory space
+        assertEqual(2, memory.getCachedBlocks(), "Cached blocks");
+        assertEqual("(40 , 60) (20 , 20) \n(0 , 10) (10 , 10) ", memory.toString(), "Cached blocks stay allocated");
+        assertEqual(b, memory.malloc(10), "Malloc of a cached length reuses the last cached block");
+        assertEqual(1, (int) memory.getCacheHits(), "Cache hits");
+        assertEqual(40, memory.malloc(15), "Malloc of another length goes to the backing memory space");
+        memory.defrag();
+        assertEqual(0, memory.getCachedBlocks(), "Cached blocks after defrag");
+        assertEqual("(0 , 10) (20 , 20) (55 , 45) \n(10 , 10) (40 , 15) ", memory.toString(), "State after flushing the cache");
+
+        ThreadCachedMemorySpace flushing = new ThreadCachedMemorySpace(
+                new ConcurrentMemorySpace(100, 1, AllocationPolicy.FIRST_FIT), 10, 2);
+        flushing.free(flushing.malloc(5));
+        assertEqual(1, flushing.getCachedBlocks(), "Cached blocks before the periodic flush");
+        flushing.free(flushing.malloc(5));
+        assertEqual(0, flushing.getCachedBlocks(), "Cached blocks after the periodic flush");
+    }
+
+    private static void testThreadCacheCrossThreadFree() {
+        ConcurrentMemorySpace backing = new ConcurrentMemorySpace(10, 1, AllocationPolicy.FIRST_FIT);
+        ThreadCachedMemorySpace memory = new ThreadCachedMemorySpace(backing, 100, 1000);
+        int a = memory.malloc(10);
+        assertEqual(0, a, "Allocation by the main thread");
+        int[] c = new int[1];
+        runThread(() -> memory.free(a)); // cached by the freeing thread, at its real length
+        runThread(() -> c[0] = memory.malloc(5));
+        assertEqual(-1, c[0], "A block cached by another thread stays allocated");
+        memory.free(a); // already cached, so this does nothing
+        assertEqual(0, memory.getCachedBlocks(), "Freeing a block cached by another thread again does nothing");
+        assertEqual(-1, memory.malloc(10), "The block is still cached by the exited thread");
+        assertEqual(3, memory.getCacheCount(), "Caches of the main thread and the two exited threads");
+        memory.flush();
+        assertEqual(1, memory.getCacheCount(), "Flushing drains and forgets the caches of the exited threads");
+        assertEqual("(0 , 10) \n", memory.toString(), "The block is back in the backing memory space");
+        assertEqual(0, memory.malloc(10), "Allocation after the flush");
+        assertEqual(-1, memory.malloc(5), "No overlapping allocation");
+    }
+
+    private static void testThreadCacheProducerConsumer() {
+        int size = 1 << 12;
+        ThreadCachedMemorySpace memory = new ThreadCachedMemorySpace(
+                new ConcurrentMemorySpace(size, 2, AllocationPolicy.FIRST_FIT), 16, 64);
+        java.util.concurrent.atomic.AtomicIntegerArray used = new java.util.concurrent.atomic.AtomicIntegerArray(size);
+        java.util.concurrent.BlockingQueue<int[]> queue = new java.util.concurrent.ArrayBlockingQueue<>(64);
+        String[] error = new String[1];
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final int seed = t;
+            // even threads allocate blocks and hand them to the odd threads, which free them
+            threads[t] = new Thread(() -> {
+                java.util.Random random = new java.util.Random(seed);
+                try {
+                    for (int i = 0; i < 3000; i++) {
+                        if (seed % 2 == 0) {
+                            int length = 1 + random.nextInt(8);
+                            int address = memory.malloc(length);
+                            if (address != -1) {
+                                for (int w = address; w < address + length; w++) {
+                                    if (!used.compareAndSet(w, 0, 1)) {
+                                        error[0] = "word " + w + " allocated twice";
+                                    }
+                                }
+                            }
+                            queue.put(new int[] {address, length});
+                        } else {
+                            int[] block = queue.take();
+                            if (block[0] != -1) {
+                                for (int w = block[0]; w < block[0] + block[1]; w++) {
+                                    used.set(w, 0);
+                                }
+                                memory.free(block[0]);
+                            }
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    error[0] = "interrupted";
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                throw new AssertionError("Interrupted");
+            }
+        }
+        assertEqual(true, error[0] == null, "Blocks freed by other threads are never handed out twice: " + error[0]);
+        memory.defrag();
+        assertEqual("(0 , 2048) (2048 , 2048) \n", memory.toString(), "Defrag flushes the caches of all the threads");
+    }
+
+    // Runs the given code in a new thread, and waits until it ends
+    private static void runThread(Runnable code) {
+        Thread thread = new Thread(code);
+        thread.start();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            throw new AssertionError("Interrupted");
+        }
+    }
+
+    private static void testBlockPool() {
+        MemorySpace memory = new MemorySpace(100);
+        memory.malloc(10);
+        BlockPool pool = new BlockPool(memory, 8, 3);
+        assertEqual(10, pool.getBaseAddress(), "Pool region is allocated in the memory space");
+        assertEqual("(34 , 66) \n(0 , 10) (10 , 24) ", memory.toString(), "Memory space after creating the pool");
+        assertEqual(-1, pool.malloc(9), "Malloc larger than the block size");
+        assertEqual(10, pool.malloc(8), "First pool block");
+        assertEqual(18, pool.malloc(1), "Second pool block");
+        assertEqual(26, pool.malloc(8), "Third pool block");
+        assertEqual(-1, pool.malloc(8), "Malloc from an empty pool");
+        pool.free(18);
+        pool.free(18); // freeing a free block does nothing
+        pool.free(19); // not the base address of a block
+        pool.free(10);
+        assertEqual("(10 , 8) (18 , 8) \n(26 , 8) ", pool.toString(), "Pool after frees");
+        assertEqual(10, pool.malloc(8), "Malloc takes the last freed block");
+        assertEqual(18, pool.malloc(8), "Malloc takes the next free block");
+    }
+
+    private static void testBlockPoolThreads() {
+        BlockPool pool = new BlockPool(new MemorySpace(1 << 12), 16, 64);
+        Thread[] threads = new Thread[4];
+        boolean[] failed = new boolean[threads.length];
+        for (int t = 0; t < threads.length; t++) {
+            final int id = t;
+            threads[t] = new Thread(() -> {
+                int[] held = new int[8];
+                for (int round = 0; round < 5000; round++) {
+                    for (int i = 0; i < held.length; i++) {
+                        held[i] = pool.malloc(16);
+                        if (held[i] == -1) {
+                            failed[id] = true; // 4 threads * 8 blocks always fit in 64 blocks
+                        }
+                    }
+                    for (int address : held) {
+                        pool.free(address);
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                throw new AssertionError("Interrupted");
+            }
+        }
+        for (boolean f : failed) {
+            assertEqual(false, f, "Concurrent pool malloc failed");
+        }
+        java.util.HashSet<Integer> addresses = new java.util.HashSet<>();
+        for (int i = 0; i < pool.getBlockCount(); i++) {
+            addresses.add(pool.malloc(16));
+        }
+        assertEqual(64, addresses.size(), "Every block is free exactly once after concurrent use");
+        assertEqual(false, addresses.contains(-1), "No malloc fails after concurrent use");
+    }
+
+    private static void testBuddyMemorySpace() {
+        BuddyMemorySpace memory = new BuddyMemorySpace(100);
+        assertEqual("(96 , 4) (64 , 32) (0 , 64) \n", memory.toString(), "Initial buddy blocks");
+        assertEqual(96, memory.malloc(3), "Buddy malloc takes the smallest order that fits");
+        assertEqual(64, memory.malloc(5), "Buddy malloc splits the smallest larger block");
+        assertEqual("(72 , 8) (80 , 16) (0 , 64) \n(96 , 4) (64 , 8) ", memory.toString(),
+                    "Buddies of the split block stay free");
+        assertEqual(-1, memory.malloc(65), "Buddy malloc larger than every block");
+        assertEqual(-1, memory.malloc(0), "Buddy malloc of a non-positive length");
+        memory.free(64);
+        assertEqual("(64 , 32) (0 , 64) \n(96 , 4) ", memory.toString(), "Freed block merges with its buddies");
+        memory.free(96);
+        assertEqual("(96 , 4) (64 , 32) (0 , 64) \n", memory.toString(), "Blocks of the initial split never merge");
+        try {
+            memory.free(0);
+            throw new AssertionError("Buddy free with no allocated block should throw");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    private static void testBuddyMergesEverything() {
+        BuddyMemorySpace memory = new BuddyMemorySpace(1 << 12);
+        int[] trace = MemorySpaceBenchmark.randomTrace(2000, 3);
+        MemorySpaceBenchmark.replay(memory, trace);
+        String[] lines = memory.toString().split("\n", -1);
+        java.util.regex.Matcher matcher = java.util.regex.Pattern.compile("\\((\\d+) , (\\d+)\\)").matcher(lines[0] + lines[1]);
+        boolean[] used = new boolean[1 << 12];
+        java.util.ArrayList<Integer> allocated = new java.util.ArrayList<>();
+        while (matcher.find()) {
+            int base = Integer.parseInt(matcher.group(1));
+            int length = Integer.parseInt(matcher.group(2));
+            assertEqual(0, base % length, "Buddy block is aligned to its length");
+            for (int i = base; i < base + length; i++) {
+                assertEqual(false, used[i], "Address " + i + " is in one buddy block");
+                used[i] = true;
+            }
+            if (matcher.start() >= lines[0].length()) {
+                allocated.add(base);
+            }
+        }
+        for (boolean u : used) {
+            assertEqual(true, u, "Buddy blocks cover the memory");
+        }
+        for (int address : allocated) {
+            memory.free(address);
+        }
+        assertEqual("(0 , 4096) \n", memory.toString(), "Freeing everything merges all the buddies");
+    }
+
+    private static void testBitmapMemorySpace() {
+        BitmapMemorySpace memory = new BitmapMemorySpace(200);
+        assertEqual(0, memory.malloc(70), "Bitmap malloc across a word boundary");
+        assertEqual(70, memory.malloc(58), "Bitmap malloc up to the end of a word");
+        assertEqual(128, memory.malloc(10), "Bitmap malloc at the start of a word");
+        memory.free(70);
+        assertEqual("(70 , 58) (138 , 62) \n(0 , 70) (128 , 10) ", memory.toString(), "Bitmap free runs");
+        assertEqual(138, memory.malloc(60), "Bitmap malloc skips runs that are too short");
+        assertEqual(-1, memory.malloc(59), "Bitmap malloc with no run long enough");
+        memory.free(128);
+        assertEqual(70, memory.malloc(68), "Bitmap malloc of a run that spans words");
+        assertEqual("(198 , 2) \n(0 , 70) (138 , 60) (70 , 68) ", memory.toString(), "Bitmap state");
+        assertEqual(2, memory.getFreeSize(), "Bitmap free size");
+
+        BitmapMemorySpace granular = new BitmapMemorySpace(100, 8);
+        assertEqual(0, granular.malloc(3), "Granular malloc");
+        assertEqual(8, granular.malloc(9), "Granular malloc rounds up to granules");
+        assertEqual("(24 , 72) \n(0 , 8) (8 , 16) ", granular.toString(), "Granular state (the last 4 words are not used)");
+    }
+
+    private static void testBitmapSameAsCoalescingMemorySpace() {
+        // with coalescing, the free list of a MemorySpace is sorted and merged, so its first fit is by address
+        MemorySpace expected = new MemorySpace(1 << 12);
+        expected.setCoalescing(true);
+        assertSameAs(expected, new BitmapMemorySpace(1 << 12), false, "Bitmap memory space");
+    }
+
+    private static void testTlsfMemorySpace() {
+        TlsfMemorySpace memory = new TlsfMemorySpace(1000);
+        assertEqual(0, memory.malloc(100), "TLSF malloc");
+        assertEqual(100, memory.malloc(5), "TLSF malloc of a small block");
+        assertEqual(105, memory.malloc(40), "TLSF malloc");
+        memory.free(0);
+        memory.free(105);
+        assertEqual("(0 , 100) (105 , 895) \n(100 , 5) ", memory.toString(), "TLSF free merges with the next free block");
+        assertEqual(0, memory.malloc(90), "TLSF malloc takes a block from the smallest range that fits");
+        assertEqual(105, memory.malloc(99), "TLSF malloc skips a range that may not fit");
+        assertEqual(-1, memory.malloc(900), "TLSF malloc that doesn't fit");
+        memory.free(100);
+        assertEqual("(90 , 15) (204 , 796) \n(0 , 90) (105 , 99) ", memory.toString(), "TLSF free merges with the previous free block");
+
+        assertEqual(0, new TlsfMemorySpace(33).malloc(33), "TLSF malloc of the whole block of its own range");
+        memory = new TlsfMemorySpace(100);
+        memory.malloc(34);
+        memory.malloc(66);
+        memory.free(0);
+        assertEqual(-1, memory.malloc(35), "TLSF malloc longer than the first block of its own range");
+        memory.free(34);
+        memory.malloc(35);
+        memory.malloc(65);
+        memory.free(0);
+        assertEqual(0, memory.malloc(35), "TLSF malloc falls back to the first block of its own range");
+    }
+
+    private static void testTlsfKeepsMemoryConsistent() {
+        TlsfMemorySpace memory = new TlsfMemorySpace(1 << 16);
+        java.util.Random random = new java.util.Random(21);
+        java.util.ArrayList<Integer> live = new java.util.ArrayList<>();
+        for (int step = 0; step < 5000; step++) {
+            if (random.nextInt(100) < 55 || live.isEmpty()) {
+                int address = memory.malloc(1 + random.nextInt(random.nextBoolean() ? 64 : 4096));
+                if (address != -1) {
+                    live.add(address);
+                }
+            } else {
+                memory.free(live.remove(random.nextInt(live.size())));
+            }
+        }
+        String[] lines = memory.toString().split("\n", -1);
+        java.util.regex.Matcher matcher = java.util.regex.Pattern.compile("\\((\\d+) , (\\d+)\\)").matcher(lines[0]);
+        java.util.TreeMap<Integer, Integer> free = new java.util.TreeMap<>();
+        while (matcher.find()) {
+            free.put(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)));
+        }
+        int end = -1;
+        for (java.util.Map.Entry<Integer, Integer> block : free.entrySet()) {
+            assertEqual(false, block.getKey() == end, "TLSF free blocks are never adjacent");
+            end = block.getKey() + block.getValue();
+        }
+        for (int address : live) {
+            memory.free(address);
+        }
+        assertEqual("(0 , 65536) \n", memory.toString(), "TLSF memory after freeing everything");
+    }
+
+    private static void testSlabCache() {
+        MemorySpace memory = new MemorySpace(200);
+        memory.malloc(10);
+        SlabCache cache = new SlabCache(memory, 8, 3);
+        assertEqual(-1, cache.malloc(9), "Slab malloc larger than the object size");
+        assertEqual(10, cache.malloc(8), "First object of a slab, with no alignment gap");
+        assertEqual("(34 , 166) \n(0 , 10) (10 , 24) ", memory.toString(), "Slab allocated from the memory space");
+        assertEqual(18, cache.malloc(5), "Second object");
+        assertEqual(26, cache.malloc(8), "Third object");
+        assertEqual(34, cache.malloc(8), "First object of a second slab");
+        assertEqual(2, cache.getSlabCount(), "Slab count");
+        cache.free(18);
+        cache.free(18); // freeing a free object does nothing
+        cache.free(19); // not the base address of an object
+        cache.free(60); // not in a slab
+        assertEqual("(18 , 8) (42 , 8) (50 , 8) \n(10 , 8) (26 , 8) (34 , 8) ", cache.toString(), "Slab cache state");
+        assertEqual(18, cache.malloc(8), "Malloc reuses the freed object");
+        cache.free(34);
+        assertEqual(2, cache.getSlabCount(), "An empty slab is kept");
+        String kept = "(58 , 142) \n(0 , 10) (10 , 24) (34 , 24) ";
+        assertEqual(kept, memory.toString(), "Memory space while the empty slab is kept");
+        for (int i = 0; i < 100; i++) {
+            cache.free(cache.malloc(8));
+        }
+        assertEqual(kept, memory.toString(), "Malloc and free around a slab boundary don't touch the memory space");
+        cache.defrag();
+        assertEqual(1, cache.getSlabCount(), "Defrag returns the kept empty slab");
+        assertEqual("(34 , 166) \n(0 , 10) (10 , 24) ", memory.toString(), "Memory space after returning a slab");
+
+        SlabCache many = new SlabCache(new MemorySpace(1 << 16), 4, 100);
+        java.util.ArrayList<Integer> objects = new java.util.ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            objects.add(many.malloc(4));
+        }
+        assertEqual(10, many.getSlabCount(), "Slabs of 100 objects");
+        assertEqual(1000, new java.util.HashSet<>(objects).size(), "Objects are distinct");
+        for (int address : objects) {
+            many.free(address);
+        }
+        assertEqual(1, many.getSlabCount(), "Every slab but one is returned when every object is freed");
+        many.defrag();
+        assertEqual(0, many.getSlabCount(), "The last empty slab is returned by defrag");
+
+        // slabs at unaligned addresses, separated by other blocks of the memory space
+        MemorySpace shared = new MemorySpace(1 << 14);
+        SlabCache odd = new SlabCache(shared, 3, 5);
+        java.util.Random random = new java.util.Random(9);
+        java.util.ArrayList<Integer> live = new java.util.ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            if (random.nextInt(4) == 0) {
+                shared.malloc(1 + random.nextInt(7));
+            }
+            if (live.isEmpty() || random.nextInt(3) > 0) {
+                live.add(odd.malloc(3));
+            } else {
+                odd.free(live.remove(random.nextInt(live.size())));
+            }
+        }
+        assertEqual(live.size(), new java.util.HashSet<>(live).size(), "Objects of unaligned slabs are distinct");
+        for (int address : live) {
+            odd.free(address);
+        }
+        odd.defrag();
+        assertEqual(0, odd.getSlabCount(), "Every unaligned slab is found and returned");
+    }
+
+    private static void testRegion() {
+        MemorySpace memory = new MemorySpace(100);
+        memory.malloc(10);
+        Region region = new Region(memory, 50);
+        assertEqual(10, region.allocate(5), "Region allocation at the base");
+        assertEqual(15, region.allocate(3), "Region allocation bumps the pointer");
+        assertEqual(24, region.allocate(8, 8), "Aligned region allocation");
+        assertEqual(-1, region.allocate(40), "Region allocation that doesn't fit");
+        assertEqual(22, region.getUsed(), "Region used words");
+        assertEqual(6, region.getWaste(), "Region alignment waste");
+        assertEqual(3, region.getAllocationCount(), "Region allocation count");
+        assertEqual(1, region.getFailureCount(), "Region failure count");
+        assertEqual("(32 , 28) \n(10 , 22) ", region.toString(), "Region state");
+        region.reset();
+        assertEqual(0, region.getUsed(), "Region used words after reset");
+        assertEqual(0, region.getPeakUsed(), "Region peak after reset");
+        assertEqual(10, region.allocate(50), "Region allocation after reset");
+        region.release();
+        assertEqual("(60 , 40) (10 , 50) \n(0 , 10) ", memory.toString(), "Released region block is freed");
+        try {
+            region.allocate(1);
+            throw new AssertionError("Allocating in a released region should throw");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+    private static void testNestedRegion() {
+        Region outer = new Region(new MemorySpace(100), 100);
+        outer.allocate(10);
+        Region inner = outer.nested(30);
+        assertEqual(10, inner.getBaseAddress(), "Nested region block");
+        assertEqual(10, inner.allocate(20), "Nested region allocation");
+        assertEqual(true, outer.nested(70) == null, "Nested region that doesn't fit");
+        inner.release();
+        assertEqual(10, outer.getUsed(), "Releasing the last nested region gives its block back");
+        assertEqual(0, outer.getWaste(), "No waste after the nested region is given back");
+        Region first = outer.nested(10);
+        outer.allocate(5);
+        first.release();
+        assertEqual(25, outer.getUsed(), "A nested region that is not last stays used");
+        Region second = outer.nested(10);
+        outer.reset();
+        assertEqual(false, second.isAlive(), "Resetting a region ends its nested regions");
+        second.release();
+        assertEqual(0, outer.getUsed(), "Releasing an ended nested region changes nothing");
+    }
+
+    private static void testHandleMemorySpace() {
+        HandleMemorySpace memory = new HandleMemorySpace(100, AllocationPolicy.FIRST_FIT);
+        Handle[] handles = new Handle[5];
+        for (int i = 0; i < handles.length; i++) {
+            handles[i] = memory.malloc(20);
+        }
+        assertEqual(true, memory.malloc(1) == null, "Handle malloc with no room");
+        memory.free(handles[0]);
+        memory.free(handles[2]);
+        memory.free(handles[2]); // freeing an invalid handle does nothing
+        assertEqual(false, handles[2].isValid(), "Freed handle is invalid");
+        memory.defrag();
+        assertEqual(true, memory.malloc(30) == null, "Defrag can't merge holes separated by allocated blocks");
+        memory.compact();
+        assertEqual("(60 , 40) \n(0 , 20) (20 , 20) (40 , 20) ", memory.toString(), "State after compact");
+        assertEqual(0, handles[1].getAddress(), "Handle follows its block");
+        assertEqual(20, handles[3].getAddress(), "Handle follows its block");
+        assertEqual(40, handles[4].getAddress(), "Handle follows its block");
+        assertEqual(60, memory.malloc(30).getAddress(), "Malloc after compact");
+        memory.free(handles[3]);
+        assertEqual("(90 , 10) (20 , 20) \n(0 , 20) (40 , 20) (60 , 30) ", memory.toString(), "Free through a moved handle");
+        assertEqual(1, memory.getCompactionCount(), "Compaction count");
+        assertEqual(60, (int) memory.getMovedWords(), "Moved words");
+        assertEqual(memory.toString(), memory.snapshot().toString(), "Snapshot of the memory space");
+    }
+
+    private static void testAllocatorEngine() {
+        String old = System.getProperty(AllocatorEngine.PROPERTY);
+        java.util.Locale oldLocale = java.util.Locale.getDefault();
+        try {
+            System.clearProperty(AllocatorEngine.PROPERTY);
+            assertEqual(true, AllocatorEngine.fromConfiguration() == AllocatorEngine.LINKED_LIST, "Default engine");
+            System.setProperty(AllocatorEngine.PROPERTY, "buddy");
+            assertEqual(true, AllocatorEngine.fromConfiguration() == AllocatorEngine.BUDDY, "Configured engine");
+            java.util.Locale.setDefault(new java.util.Locale("tr", "TR")); // where "i".toUpperCase() is not "I"
+            System.setProperty(AllocatorEngine.PROPERTY, "bitmap");
+            assertEqual(true, AllocatorEngine.fromConfiguration() == AllocatorEngine.BITMAP, "Configured engine in any locale");
+        } finally {
+            java.util.Locale.setDefault(oldLocale);
+            if (old == null) {
+                System.clearProperty(AllocatorEngine.PROPERTY);
+            } else {
+                System.setProperty(AllocatorEngine.PROPERTY, old);
+            }
+        }
+        for (AllocatorEngine engine : AllocatorEngine.values()) {
+            MemoryAllocator memory = engine.create(64);
+            int address = memory.malloc(16);
+            memory.free(address);
+            memory.defrag();
+            assertEqual("(0 , 64) \n", memory.toString(), engine + " engine after malloc and free");
+        }
+        int[] trace = MemorySpaceBenchmark.randomTrace(500, 21);
+        for (AllocatorEngine engine : AllocatorEngine.values()) {
+            InspectableAllocator memory = engine.create(1 << 14);
+            MemorySpaceBenchmark.replay(memory, trace);
+            MemorySpaceSnapshot snapshot = memory.snapshot();
+            assertEqual(memory.toString(), snapshot.toString(), engine + " engine snapshot");
+            assertEqual(true, snapshot.getFreeSize() + snapshot.getAllocatedSize() == 1 << 14, engine + " engine snapshot sizes");
+        }
+    }
+
+    private static void testLongMemorySpace() {
+        long tera = 1L << 40;
+        LongMemorySpace memory = new LongMemorySpace(4 * tera);
+        assertEqual(true, memory.malloc(3 * tera) == 0, "Long malloc beyond 2^31 words");
+        long second = memory.malloc(tera / 2);
+        assertEqual(true, second == 3 * tera, "Long malloc address");
+        assertEqual(true, memory.malloc(tera) == -1, "Long malloc that doesn't fit");
+        memory.free(0);
+        memory.free(second);
+        memory.defrag();
+        assertEqual("(0 , 4398046511104) \n", memory.toString(), "Long memory space after defrag");
+        assertEqual(true, memory.getFreeSize() == 4 * tera, "Long free size");
+
+        LongMemorySpace top = new LongMemorySpace(Long.MAX_VALUE - 100, 100);
+        assertEqual(true, top.malloc(100) == Long.MAX_VALUE - 100, "Long malloc at the top of the address space");
+        assertRejected(() -> new LongMemorySpace(Long.MAX_VALUE - 10, 100), "A long range that overflows");
+        assertRejected(() -> new LongMemorySpace(-100, 10), "A negative long base address");
+        assertRejected(() -> new LongMemorySpace(-1), "A negative long size");
+        assertRejected(() -> new MemorySpace(Integer.MAX_VALUE - 10, 100, AllocationPolicy.FIRST_FIT), "An int range that overflows");
+        assertRejected(() -> new MemorySpace(-100, 10, AllocationPolicy.FIRST_FIT), "A negative base address");
+        assertRejected(() -> new MemorySpace(-1), "A negative size");
+        MemorySpace full = new MemorySpace(Integer.MAX_VALUE - 100, 100, AllocationPolicy.FIRST_FIT);
+        assertEqual(Integer.MAX_VALUE - 100, full.malloc(100), "Malloc at the top of the int address space");
+    }
+
+    // Checks that the given constructor call throws an IllegalArgumentException
+    private static void assertRejected(Runnable constructor, String message) {
+        try {
+            constructor.run();
+            throw new AssertionError(message + " should throw");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    // Replays the same random trace on a (first-fit) MemorySpace and on the given allocator,
+    // and checks that both return the same addresses and have the same state after each step.
+    private static void assertSameAsMemorySpace(MemoryAllocator actual, int size, String message) {
+        assertSameAs(new MemorySpace(size), actual, true, message);
+    }
+
+    // Replays the same random trace on both allocators, and checks that both return
+    // the same addresses and have the same state after each step.
+    // If nonPositiveLengths is true, the trace also allocates blocks of length 0 and of negative lengths.
+    private static void assertSameAs(MemoryAllocator expected, MemoryAllocator actual, boolean nonPositiveLengths, String message) {
+        java.util.Random random = new java.util.Random(42);
+        java.util.ArrayList<Integer> live = new java.util.ArrayList<>();
+        for (int step = 0; step < 3000; step++) {
+            int op = random.nextInt(10);
+            if (op < 6 || live.isEmpty()) {
+                int length = (nonPositiveLengths && op == 0) ? -random.nextInt(3) : 1 + random.nextInt(200);
+                int address = expected.malloc(length);
+                assertEqual(address, actual.malloc(length), message + " malloc at step " + step);
+                if (address != -1) {
+                    live.add(address);
+                }
+            } else if (op < 9) {
+                int address = live.remove(random.nextInt(live.size()));
+                expected.free(address);
+                actual.free(address);
+            } else {
+                expected.defrag();
+                actual.defrag();
+            }
+            assertEqual(expected.toString(), actual.toString(), message + " state at step " + step);
+        }
+    }
+
+    private static void assertEqual(int expected, int actual, String message) {
+        if (expected != actual) {
+            throw new AssertionError(message + ": Expected " + expected + " but got " + actual);
+        }
+    }
+
+    private static void assertEqual(boolean expected, boolean actual, String message) {
+        if (expected != actual) {
+            throw new AssertionError(message + ": Expected " + expected + " but got " + actual);
+        }
+    }
+
+    private static void assertEqual(String expected, String actual, String message) {
+        if (!expected.equals(actual)) {
+            throw new AssertionError(message + ":\nExpected: " + expected + "\nActual: " + actual);
+        }
+    }
+}
@@ -0,0 +1,254 @@
+public class TestLinkedList {
+
+    public static void main(String[] args) {
+        testAll();
+    }
+
+    private static void testAll() {
+        testGetNodeAfterChanges();
+        testCursorTraversal();
+        testCursorInsert();
+        testCursorRemove();
+        testCursorMoveTo();
+        testPrevLinks();
+        testSortByBaseAddress();
+        testMergeAdjacentBlocks();
+        testRemoveNodeTwice();
+        testRemoveNodeOfAnotherList();
+        testRemoveIdentical(new LinkedList());
+        testRemoveIdentical(new LinkedList(true));
+
+        System.out.println("All tests completed successfully!");
+    }
+
+    private static void testGetNodeAfterChanges() {
+        LinkedList list = createList(5);
+        assertEqual(3, list.getNode(3).block.baseAddress, "getNode before changes");
+        list.add(2, new MemoryBlock(100, 1));
+        assertEqual(2, list.getNode(3).block.baseAddress, "getNode after add");
+        list.remove(0);
+        assertEqual(3, list.getNode(3).block.baseAddress, "getNode after remove");
+        assertEqual(100, list.getNode(1).block.baseAddress, "getNode going backwards");
+        for (int i = 0; i < list.getSize(); i++) {
+            assertEqual(list.indexOf(list.getBlock(i)), i, "getNode in a loop");
+        }
+    }
+
+    private static void testCursorTraversal() {
+        LinkedList list = createList(4);
+        ListCursor cursor = list.cursor();
+        int i = 0;
+        while (cursor.hasCurrent()) {
+            assertEqual(i, cursor.getIndex(), "Cursor index");
+            assertEqual(i, cursor.getBlock().baseAddress, "Cursor block");
+            cursor.next();
+            i++;
+        }
+        assertEqual(4, i, "Cursor traversal length");
+    }
+
+    private static void testCursorInsert() {
+        LinkedList list = createList(2);
+        ListCursor cursor = list.cursor();
+        cursor.insertBefore(new MemoryBlock(10, 1));
+        cursor.insertAfter(new MemoryBlock(11, 1));
+        cursor.next();
+        cursor.next();
+        cursor.next();
+        cursor.insertBefore(new MemoryBlock(12, 1));
+        assertEqual("(10 , 1) (0 , 1) (11 , 1) (1 , 1) (12 , 1) ", list.toString(), "Cursor inserts");
+        assertEqual(5, list.getSize(), "Size after cursor inserts");
+        assertEqual(12, list.getLast().block.baseAddress, "Last after inserting at the end");
+    }
+
+    private static void testCursorRemove() {
+        LinkedList list = createList(5);
+        ListCursor cursor = list.cursor();
+        while (cursor.hasCurrent()) {
+            if (cursor.getBlock().baseAddress % 2 == 0) {
+                cursor.remove();
+            } else {
+                cursor.next();
+            }
+        }
+        assertEqual("(1 , 1) (3 , 1) ", list.toString(), "Cursor removes");
+        assertEqual(3, list.getLast().block.baseAddress, "Last after removing the last node");
+        cursor = list.cursor();
+        cursor.remove();
+        cursor.remove();
+        assertEqual(0, list.getSize(), "Size after removing everything");
+        assertEqual(true, list.getFirst() == null && list.getLast() == null, "Empty list after cursor removes");
+    }
+
+    private static void testCursorMoveTo() {
+        LinkedList list = createList(6);
+        ListCursor cursor = list.cursor();
+        cursor.moveTo(4);
+        assertEqual(4, cursor.getBlock().baseAddress, "Cursor moves forward");
+        cursor.moveTo(1);
+        assertEqual(1, cursor.getBlock().baseAddress, "Cursor moves backward");
+        cursor.moveTo(6);
+        assertEqual(false, cursor.hasCurrent(), "Cursor moves past the end");
+    }
+
+    private static void testPrevLinks() {
+        LinkedList list = createList(6);
+        list.add(3, new MemoryBlock(10, 1));
+        list.remove(0);
+        list.remove(list.getLast());
+        list.remove(new MemoryBlock(2, 1));
+        list.addAfter(list.getNode(1), new MemoryBlock(11, 1));
+        list.cursor().remove();
+        assertLinks(list, "after adds and removes");
+        list.sortByBaseAddress();
+        assertLinks(list, "after sorting");
+        list.addFirst(new MemoryBlock(2, 1));
+        list.sortByBaseAddress();
+        list.mergeAdjacentBlocks();
+        assertEqual("(2 , 3) (10 , 2) ", list.toString(), "Merged list");
+        assertLinks(list, "after merging");
+    }
+
+    private static void testSortByBaseAddress() {
+        LinkedList list = new LinkedList();
+        list.sortByBaseAddress();
+        assertEqual("", list.toString(), "Sorting an empty list");
+        MemoryBlock first = new MemoryBlock(7, 1);
+        MemoryBlock second = new MemoryBlock(7, 2);
+        list.addLast(new MemoryBlock(30, 5));
+        list.addLast(first);
+        list.addLast(new MemoryBlock(-4, 3));
+        list.addLast(second);
+        list.addLast(new MemoryBlock(12, 1));
+        Node firstNode = list.getNode(1);
+        list.sortByBaseAddress();
+        assertEqual("(-4 , 3) (7 , 1) (7 , 2) (12 , 1) (30 , 5) ", list.toString(), "Sorted list, equal addresses in order");
+        assertEqual(true, list.getNode(1) == firstNode, "Sorting relinks the nodes instead of copying them");
+        assertLinks(list, "after sorting");
+
+        java.util.Random random = new java.util.Random(3);
+        list = new LinkedList();
+        for (int i = 0; i < 1000; i++) {
+            list.addLast(new MemoryBlock(random.nextInt(500), 1));
+        }
+        list.sortByBaseAddress();
+        assertEqual(1000, list.getSize(), "Size after sorting");
+        for (Node current = list.getFirst(); current.next != null; current = current.next) {
+            assertEqual(true, current.block.baseAddress <= current.next.block.baseAddress, "Sorted random list");
+        }
+        assertLinks(list, "after sorting a random list");
+    }
+
+    private static void testMergeAdjacentBlocks() {
+        LinkedList list = new LinkedList();
+        list.addLast(new MemoryBlock(0, 5));
+        list.addLast(new MemoryBlock(5, 5));
+        list.addLast(new MemoryBlock(10, 2));
+        list.addLast(new MemoryBlock(20, 1));
+        list.addLast(new MemoryBlock(40, 4));
+        list.addLast(new MemoryBlock(21, 4));
+        list.mergeAdjacentBlocks();
+        assertEqual("(0 , 12) (20 , 1) (40 , 4) (21 , 4) ", list.toString(), "Only consecutive contiguous nodes merge");
+        assertEqual(4, list.getSize(), "Size after merging");
+        assertLinks(list, "after merging");
+        list.sortByBaseAddress();
+        list.mergeAdjacentBlocks();
+        assertEqual("(0 , 12) (20 , 5) (40 , 4) ", list.toString(), "Sorted list merges all contiguous blocks");
+        assertEqual(true, list.getLast().block.baseAddress == 40, "Last node after merging");
+        assertLinks(list, "after sorting and merging");
+    }
+
+    private static void testRemoveNodeTwice() {
+        LinkedList list = createList(3);
+        Node first = list.getFirst();
+        Node middle = list.getNode(1);
+        list.remove(middle);
+        list.remove(middle);
+        list.remove(first);
+        list.remove(first);
+        assertEqual("(2 , 1) ", list.toString(), "Removing nodes twice");
+        assertEqual(1, list.getSize(), "Size after removing nodes twice");
+        assertLinks(list, "after removing nodes twice");
+    }
+
+    private static void testRemoveNodeOfAnotherList() {
+        LinkedList a = new LinkedList();
+        a.addLast(new MemoryBlock(0, 1));
+        LinkedList b = new LinkedList();
+        b.addLast(new MemoryBlock(10, 1));
+        b.addLast(new MemoryBlock(20, 1));
+        a.remove(b.getLast());
+        a.remove(b.getFirst());
+        assertEqual("(0 , 1) ", a.toString(), "Removing nodes of another list leaves the list unchanged");
+        assertEqual(1, a.getSize(), "Size after removing nodes of another list");
+        assertEqual("(10 , 1) (20 , 1) ", b.toString(), "The other list is unchanged");
+        assertEqual(2, b.getSize(), "Size of the other list");
+        assertLinks(a, "after removing nodes of another list");
+        assertLinks(b, "of the other list");
+        b.remove(b.getLast());
+        assertEqual("(10 , 1) ", b.toString(), "The node is still removed from its own list");
+    }
+
+    private static void testRemoveIdentical(LinkedList list) {
+        MemoryBlock block = new MemoryBlock(5, 5);
+        MemoryBlock equalBlock = new MemoryBlock(5, 5);
+        list.addLast(equalBlock);
+        list.addLast(block);
+        list.addLast(new MemoryBlock(10, 1));
+        list.addLast(block);
+        assertEqual(true, list.nodeOf(block) == list.getNode(1), "nodeOf finds the block object, not an equal block");
+        list.removeIdentical(block);
+        assertEqual(true, list.getFirst().block == equalBlock, "removeIdentical keeps the equal block");
+        assertEqual(true, list.nodeOf(block) == list.getLast(), "nodeOf finds the second occurrence of the block");
+        list.removeIdentical(block);
+        assertEqual(null == list.nodeOf(block), true, "nodeOf after removing all occurrences");
+        assertEqual("(5 , 5) (10 , 1) ", list.toString(), "State after removeIdentical");
+        try {
+            list.removeIdentical(block);
+            throw new AssertionError("removeIdentical of a missing block must throw");
+        } catch (IllegalArgumentException e) {
+            assertEqual("index must be between 0 and size", e.getMessage(), "removeIdentical of a missing block");
+        }
+        assertLinks(list, "after removeIdentical");
+    }
+
+    // Checks that the prev pointers of the given list mirror its next pointers
+    private static void assertLinks(LinkedList list, String message) {
+        Node previous = null;
+        int count = 0;
+        for (Node current = list.getFirst(); current != null; current = current.next) {
+            assertEqual(true, current.prev == previous, "prev pointer " + message);
+            previous = current;
+            count++;
+        }
+        assertEqual(true, list.getLast() == previous, "last node " + message);
+        assertEqual(list.getSize(), count, "size " + message);
+    }
+
+    // Returns the list (0 , 1) (1 , 1) ... (n - 1 , 1)
+    private static LinkedList createList(int n) {
+        LinkedList list = new LinkedList();
+        for (int i = 0; i < n; i++) {
+            list.addLast(new MemoryBlock(i, 1));
+        }
+        return list;
+    }
+
+    private static void assertEqual(int expected, int actual, String message) {
+        if (expected != actual) {
+            throw new AssertionError(message + ": Expected " + expected + " but got " + actual);
+        }
+    }
+
+    private static void assertEqual(boolean expected, boolean actual, String message) {
+        if (expected != actual) {
+            throw new AssertionError(message + ": Expected " + expected + " but got " + actual);
+        }
+    }
+
+    private static void assertEqual(String expected, String actual, String message) {
+        if (!expected.equals(actual)) {
+            throw new AssertionError(message + ":\nExpected: " + expected + "\nActual: " + actual);
+        }
+    }
+}
@@ -12,6 +12,25 @@ public class TestMemorySpace {
         testFree();
         testDefrag();
         testComplexScenario();
+        testNonPositiveLength();
+        testFreeManyBlocks();
+        testIndexedFirstFit();
+        testNextFit();
+        testBestFit();
+        testSegregatedFit();
+        testPoliciesKeepMemoryConsistent();
+        testCoalescing();
+        testCoalescingKeepsFreeListDefragmented();
+        testSnapshot();
+        testBatch();
+        testRealloc();
+        testReallocKeepsMemoryConsistent();
+        testAlignedMalloc();
+        testAlignedMallocWithFreeIndex();
+        testCompact();
+        testRescue();
+        testRescueResumesWhereItStopped();
+        testRescueKeepsMemoryConsistent();
 
         System.out.println("All tests completed successfully!");
     }
@@ -98,6 +117,453 @@ public class TestMemorySpace {
         assertString(expected, memory.toString(), "Complex scenario state");
     }
 
+    private static void testNonPositiveLength() {
+        MemorySpace memory = new MemorySpace(100);
+        assertEqual(0, memory.malloc(0), "Allocation of length 0");
+        assertEqual(0, memory.malloc(10), "Allocation at the address of a block of length 0");
+        assertEqual("(10 , 90) \n(0 , 0) (0 , 10) ", memory.toString(), "State after an allocation of length 0");
+        memory.free(0);
+        assertEqual("(10 , 90) (0 , 0) \n(0 , 10) ", memory.toString(), "The older block is freed first");
+        memory.free(0);
+        assertEqual("(10 , 90) (0 , 0) (0 , 10) \n", memory.toString(), "Then the newer one");
+        assertEqual(10, memory.malloc(0), "Allocation of length 0");
+        assertEqual(10, memory.malloc(0), "Second allocation of length 0 at the same address");
+        assertEqual(10, memory.malloc(5), "Third allocation at the same address");
+        assertEqual(15, memory.malloc(5), "Allocation at another address");
+        memory.free(15);
+        memory.free(10);
+        memory.free(10);
+        assertEqual("(20 , 80) (0 , 0) (0 , 10) (15 , 5) (10 , 0) (10 , 0) \n(10 , 5) ", memory.toString(),
+                    "Blocks that share an address are freed oldest first");
+        memory.free(10);
+        assertEqual(0, memory.snapshot().getAllocatedBlockCount(), "Every block is freed");
+
+        memory = new MemorySpace(100);
+        assertEqual(0, memory.malloc(-5), "Allocation of a negative length");
+        assertEqual("(-5 , 105) \n(0 , -5) ", memory.toString(), "State after a negative allocation");
+    }
+
+    private static void testFreeManyBlocks() {
+        MemorySpace memory = new MemorySpace(5000);
+        int[] addresses = new int[2500];
+        for (int i = 0; i < addresses.length; i++) {
+            addresses[i] = memory.malloc(2);
+        }
+        java.util.Random random = new java.util.Random(1);
+        for (int i = addresses.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int temp = addresses[i];
+            addresses[i] = addresses[j];
+            addresses[j] = temp;
+        }
+        for (int i = 0; i < addresses.length - 1; i++) {
+            memory.free(addresses[i]);
+            memory.free(addresses[i]); // freeing twice does nothing
+        }
+        memory.free(addresses[addresses.length - 1]);
+        memory.defrag();
+        assertEqual("(0 , 5000) \n", memory.toString(), "State after freeing all blocks in random order");
+    }
+
+    private static void testIndexedFirstFit() {
+        assertSameAsFirstFit(AllocationPolicy.INDEXED_FIRST_FIT, "Indexed first-fit");
+    }
+
+    private static void testNextFit() {
+        MemorySpace memory = new MemorySpace(100, AllocationPolicy.NEXT_FIT);
+        memory.malloc(10);
+        int addr2 = memory.malloc(10);
+        memory.malloc(10);
+        memory.free(0);
+        memory.free(addr2);
+        // free list is now (30 , 70) (0 , 10) (10 , 10), and the rover is at (30 , 70)
+        assertEqual(30, memory.malloc(5), "Next fit continues from the rover");
+        assertEqual(35, memory.malloc(60), "Next fit stays on the rover");
+        assertEqual(0, memory.malloc(10), "Next fit takes the first fitting block after the rover");
+        assertEqual(10, memory.malloc(10), "Next fit moves past an exhausted block");
+        assertEqual(95, memory.malloc(5), "Next fit wraps around");
+    }
+
+    private static void testBestFit() {
+        MemorySpace memory = new MemorySpace(100, AllocationPolicy.BEST_FIT);
+        memory.malloc(30);
+        int addr2 = memory.malloc(10);
+        memory.malloc(10);
+        memory.free(0);
+        memory.free(addr2);
+        // free list is now (50 , 50) (0 , 30) (30 , 10)
+        assertEqual(30, memory.malloc(8), "Best fit takes the shortest fitting block");
+        assertEqual(0, memory.malloc(20), "Best fit skips longer blocks");
+        assertEqual("(50 , 50) (20 , 10) (38 , 2) \n(40 , 10) (30 , 8) (0 , 20) ", memory.toString(), "Best fit state");
+    }
+
+    private static void testSegregatedFit() {
+        MemorySpace memory = new MemorySpace(1000, AllocationPolicy.SEGREGATED_FIT);
+        memory.malloc(100);
+        int addr2 = memory.malloc(10);
+        memory.malloc(10);
+        memory.free(0);
+        memory.free(addr2);
+        // free list is now (120 , 880) (0 , 100) (100 , 10)
+        assertEqual(100, memory.malloc(9), "Segregated fit takes a block from the request's size class");
+        assertEqual(0, memory.malloc(20), "Segregated fit takes the smallest larger size class");
+        assertEqual(-1, memory.malloc(1000), "Segregated fit fails when no size class fits");
+    }
+
+    private static void testPoliciesKeepMemoryConsistent() {
+        for (AllocationPolicy policy : AllocationPolicy.values()) {
+            MemorySpace memory = new MemorySpace(10000, policy);
+            int[] trace = MemorySpaceBenchmark.randomTrace(3000, 7);
+            MemorySpaceBenchmark.replay(memory, trace);
+            assertPartition(memory, 10000, policy + " after a random trace");
+        }
+    }
+
+    private static void testCoalescing() {
+        MemorySpace memory = new MemorySpace(100);
+        memory.setCoalescing(true);
+        for (int i = 0; i < 5; i++) {
+            memory.malloc(20);
+        }
+        memory.free(20);
+        memory.free(60);
+        assertEqual("(20 , 20) (60 , 20) \n(0 , 20) (40 , 20) (80 , 20) ", memory.toString(), "Coalescing free without neighbours");
+        memory.free(40);
+        assertEqual("(20 , 60) \n(0 , 20) (80 , 20) ", memory.toString(), "Coalescing free between two free blocks");
+        memory.free(0);
+        memory.free(80);
+        memory.defrag();
+        assertEqual("(0 , 100) \n", memory.toString(), "Coalescing free of everything");
+    }
+
+    private static void testCoalescingKeepsFreeListDefragmented() {
+        for (AllocationPolicy policy : AllocationPolicy.values()) {
+            MemorySpace memory = new MemorySpace(10000, policy);
+            int[] trace = MemorySpaceBenchmark.randomTrace(3000, 11);
+            MemorySpaceBenchmark.replay(memory, java.util.Arrays.copyOf(trace, 1500));
+            memory.setCoalescing(true);
+            MemorySpaceBenchmark.replay(memory, trace);
+            assertPartition(memory, 10000, policy + " with coalescing");
+            String freeList = memory.toString().split("\n")[0];
+            memory.setCoalescing(false);
+            memory.defrag();
+            assertEqual(freeList, memory.toString().split("\n")[0], policy + " free list is already defragmented");
+        }
+    }
+
+    private static void testSnapshot() {
+        MemorySpace memory = new MemorySpace(100);
+        memory.malloc(20);
+        memory.malloc(30);
+        MemorySpaceSnapshot snapshot = memory.snapshot();
+        assertEqual(memory.toString(), snapshot.toString(), "Snapshot has the format of toString");
+        if (memory.snapshot() != snapshot) {
+            throw new AssertionError("Snapshot is not reused when nothing changed");
+        }
+        memory.free(0);
+        assertEqual("(50 , 50) \n(0 , 20) (20 , 30) ", snapshot.toString(), "Snapshot is not affected by later changes");
+        MemorySpaceSnapshot after = memory.snapshot();
+        assertEqual(memory.toString(), after.toString(), "Snapshot after a free");
+        assertEqual(2, after.getFreeBlockCount(), "Snapshot free block count");
+        assertEqual(0, after.getFreeBase(1), "Snapshot free block base");
+        assertEqual(70, after.getFreeSize(), "Snapshot free size");
+        assertEqual(50, after.getLargestFreeBlock(), "Snapshot largest free block");
+        assertEqual(1, after.getAllocatedBlockCount(), "Snapshot allocated block count");
+        assertEqual(30, after.getAllocatedLength(0), "Snapshot allocated block length");
+
+        // in coalescing mode, freeing a block of length 0 changes only allocatedList
+        memory = new MemorySpace(100);
+        memory.setCoalescing(true);
+        memory.malloc(0);
+        memory.malloc(10);
+        memory.snapshot();
+        memory.free(0);
+        assertEqual("(10 , 90) \n(0 , 10) ", memory.snapshot().toString(), "Snapshot after freeing a block of length 0");
+    }
+
+    private static void testBatch() {
+        for (AllocationPolicy policy : AllocationPolicy.values()) {
+            MemorySpace expected = new MemorySpace(10000, policy);
+            MemorySpace actual = new MemorySpace(10000, policy);
+            int[] trace = MemorySpaceBenchmark.randomTrace(1000, 5);
+            MemorySpaceBenchmark.replay(expected, trace);
+            MemorySpaceBenchmark.replay(actual, trace);
+            java.util.Random random = new java.util.Random(6);
+            int[] lengths = new int[200];
+            for (int i = 0; i < lengths.length; i++) {
+                lengths[i] = random.nextInt(100);
+            }
+            int[] addresses = actual.mallocBatch(lengths);
+            for (int i = 0; i < lengths.length; i++) {
+                assertEqual(expected.malloc(lengths[i]), addresses[i], policy + " batch malloc " + i);
+            }
+            assertEqual(expected.toString(), actual.toString(), policy + " state after batch malloc");
+            int[] half = java.util.Arrays.copyOf(addresses, 100);
+            for (int address : half) {
+                expected.free(address);
+            }
+            actual.freeBatch(half);
+            assertEqual(expected.toString(), actual.toString(), policy + " state after batch free");
+            assertEqual(expected.malloc(50), actual.malloc(50), policy + " malloc after a batch");
+        }
+    }
+
+    private static void testRealloc() {
+        MemorySpace memory = new MemorySpace(100);
+        int a = memory.malloc(20);
+        int b = memory.malloc(30);
+        assertEqual(-1, memory.realloc(7, 10), "Realloc of an address that is not allocated");
+        assertEqual(-1, memory.realloc(a, 0), "Realloc to a non-positive length");
+        assertEqual(b, memory.realloc(b, 40), "Realloc grows in place");
+        assertEqual("(60 , 40) \n(0 , 20) (20 , 40) ", memory.toString(), "State after growing in place");
+        assertEqual(b, memory.realloc(b, 25), "Realloc shrinks in place");
+        assertEqual("(45 , 55) \n(0 , 20) (20 , 25) ", memory.toString(), "Shrunk tail merges with the next free block");
+        assertEqual(45, memory.realloc(a, 30), "Realloc moves the block when it can't grow in place");
+        assertEqual("(75 , 25) (0 , 20) \n(20 , 25) (45 , 30) ", memory.toString(), "State after moving the block");
+        assertEqual(-1, memory.realloc(b, 60), "Realloc fails when there is no room");
+        assertEqual("(75 , 25) (0 , 20) \n(20 , 25) (45 , 30) ", memory.toString(), "Failed realloc changes nothing");
+        assertEqual(45, memory.realloc(45, 55), "Realloc grows into the whole next free block");
+        assertEqual("(0 , 20) \n(20 , 25) (45 , 55) ", memory.toString(), "State after using the whole next free block");
+        assertEqual(20, memory.realloc(20, 10), "Realloc shrinks with no free block after it");
+        assertEqual("(0 , 20) (30 , 15) \n(20 , 10) (45 , 55) ", memory.toString(), "Shrunk tail is appended to the free list");
+    }
+
+    private static void testReallocKeepsMemoryConsistent() {
+        for (AllocationPolicy policy : AllocationPolicy.values()) {
+            for (boolean coalescing : new boolean[] {false, true}) {
+                MemorySpace memory = new MemorySpace(10000, policy);
+                memory.setCoalescing(coalescing);
+                java.util.Random random = new java.util.Random(9);
+                java.util.ArrayList<Integer> live = new java.util.ArrayList<>();
+                for (int step = 0; step < 2000; step++) {
+                    int op = random.nextInt(10);
+                    if (op < 4 || live.isEmpty()) {
+                        int address = memory.malloc(1 + random.nextInt(200));
+                        if (address != -1) {
+                            live.add(address);
+                        }
+                    } else if (op < 6) {
+                        memory.free(live.remove(random.nextInt(live.size())));
+                    } else if (op < 9) {
+                        int i = random.nextInt(live.size());
+                        int address = memory.realloc(live.get(i), 1 + random.nextInt(300));
+                        if (address != -1) {
+                            live.set(i, address);
+                        }
+                    } else {
+                        memory.defrag();
+                    }
+                }
+                assertPartition(memory, 10000, policy + " realloc with coalescing " + coalescing);
+                for (int address : live) {
+                    memory.free(address);
+                }
+                memory.defrag();
+                assertEqual("(0 , 10000) \n", memory.toString(), policy + " everything freed after reallocs");
+            }
+        }
+    }
+
+    private static void testAlignedMalloc() {
+        MemorySpace memory = new MemorySpace(100);
+        memory.malloc(10);
+        assertEqual(16, memory.malloc(20, 16), "Aligned malloc address");
+        assertEqual("(10 , 6) (36 , 64) \n(0 , 10) (16 , 20) ", memory.toString(), "Slack stays in the free list");
+        assertEqual(40, memory.malloc(5, 8), "Aligned malloc after the slack");
+        assertEqual(10, memory.malloc(6, 2), "Aligned malloc that fits in the slack");
+        assertEqual(-1, memory.malloc(70, 1), "Aligned malloc that doesn't fit");
+        assertEqual(-1, memory.malloc(0, 4), "Aligned malloc of a non-positive length");
+        try {
+            memory.malloc(4, 0);
+            throw new AssertionError("Aligned malloc with a non-positive alignment should throw");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        assertEqual("(36 , 4) (45 , 55) \n(0 , 10) (16 , 20) (40 , 5) (10 , 6) ", memory.toString(),
+                    "State after aligned mallocs");
+    }
+
+    private static void testAlignedMallocWithFreeIndex() {
+        MemorySpace expected = new MemorySpace(100000, AllocationPolicy.FIRST_FIT);
+        MemorySpace actual = new MemorySpace(100000, AllocationPolicy.INDEXED_FIRST_FIT);
+        java.util.Random random = new java.util.Random(17);
+        java.util.ArrayList<Integer> live = new java.util.ArrayList<>();
+        for (int step = 0; step < 3000; step++) {
+            if (random.nextInt(3) > 0 || live.isEmpty()) {
+                int length = 1 + random.nextInt(200);
+                // mostly powers of two (whose fits the index tracks), and some other alignments
+                int alignment = (random.nextInt(4) == 0) ? 3 + random.nextInt(100) : 1 << random.nextInt(8);
+                int address = expected.malloc(length, alignment);
+                assertEqual(address, actual.malloc(length, alignment), "Indexed aligned malloc at step " + step);
+                if (address != -1) {
+                    assertEqual(0, address % alignment, "Aligned address at step " + step);
+                    live.add(address);
+                }
+            } else {
+                int address = live.remove(random.nextInt(live.size()));
+                expected.free(address);
+                actual.free(address);
+            }
+        }
+        assertEqual(expected.toString(), actual.toString(), "Indexed aligned malloc state");
+        for (AllocationPolicy policy : AllocationPolicy.values()) {
+            MemorySpace memory = new MemorySpace(10000, policy);
+            memory.setCoalescing(policy == AllocationPolicy.BEST_FIT);
+            for (int i = 0; i < 200; i++) {
+                int address = memory.malloc(1 + random.nextInt(50), 1 << random.nextInt(6));
+                if (address != -1 && random.nextBoolean()) {
+                    memory.free(address);
+                }
+            }
+            assertPartition(memory, 10000, policy + " after aligned mallocs");
+        }
+    }
+
+    private static void testCompact() {
+        // the allocations and frees of LinkedListTest, which leave holes between the allocated blocks
+        for (AllocationPolicy policy : AllocationPolicy.values()) {
+            MemorySpace memory = new MemorySpace(1000, policy);
+            int[] addresses = new int[20];
+            for (int i = 0; i < addresses.length; i++) {
+                addresses[i] = memory.malloc((int) Math.pow(i + 2, 5) % 123);
+            }
+            for (int i = 0; i < addresses.length; i += 2) {
+                memory.free(addresses[i]);
+            }
+            memory.defrag();
+            StringBuilder moves = new StringBuilder();
+            memory.compact((oldAddress, newAddress, length) ->
+                    moves.append(oldAddress).append("->").append(newAddress).append(" "));
+            assertEqual("(663 , 337) \n(0 , 120) (120 , 50) (170 , 79) (249 , 9) (258 , 44) (302 , 79) (381 , 96) "
+                        + "(477 , 68) (545 , 109) (654 , 9) ", memory.toString(), policy + " state after compact");
+            assertPartition(memory, 1000, policy + " after compact");
+            assertEqual(1, memory.getFreeBlockCount(), policy + " free blocks after compact");
+            assertEqual("32->0 192->120 269->170 398->249 408->258 455->302 602->381 699->477 809->545 950->654 ",
+                        moves.toString(), policy + " relocations");
+            assertEqual(663, memory.malloc(337), policy + " malloc of the whole free block after compact");
+        }
+    }
+
+    private static void testRescue() {
+        MemorySpace memory = new MemorySpace(100);
+        int[] addresses = new int[10];
+        for (int i = 0; i < addresses.length; i++) {
+            addresses[i] = memory.malloc(10);
+        }
+        for (int i = addresses.length - 1; i >= 0; i--) {
+            memory.free(addresses[i]);
+        }
+        assertEqual(-1, memory.malloc(30), "Malloc fails without a rescue");
+        assertEqual(0, memory.getRescueCount(), "No rescue when rescues are off");
+        memory.setRescueSteps(1);
+        assertEqual(-1, memory.malloc(30), "Malloc fails when the rescue budget is too small");
+        memory.setRescueSteps(5);
+        assertEqual(70, memory.malloc(30), "Malloc succeeds thanks to the rescue");
+        assertEqual("(60 , 10) (50 , 10) (40 , 10) (30 , 10) (20 , 10) (10 , 10) (0 , 10) \n(70 , 30) ",
+                    memory.toString(), "State after the rescue");
+        assertEqual(2, memory.getRescueCount(), "Rescue count");
+        assertEqual(1, memory.getRescuedMallocCount(), "Rescued malloc count");
+        assertEqual(2, (int) memory.getRescueMerges(), "Rescue merges");
+    }
+
+    private static void testRescueResumesWhereItStopped() {
+        MemorySpace memory = new MemorySpace(100);
+        for (int i = 0; i < 10; i++) {
+            memory.malloc(10);
+        }
+        // three free blocks that can't be merged at the start of freeList, and a mergeable pair after them
+        memory.free(0);
+        memory.free(20);
+        memory.free(40);
+        memory.free(70);
+        memory.free(80);
+        memory.setRescueSteps(3);
+        assertEqual(-1, memory.malloc(20), "The first rescue only reaches the unmergeable blocks");
+        assertEqual(70, memory.malloc(20), "The second rescue resumes at the mergeable pair");
+        assertEqual(-1, memory.malloc(20), "No mergeable block is left");
+        assertEqual(-1, memory.malloc(20), "The rescue wraps around without merging anything");
+        assertEqual(4, memory.getRescueCount(), "Rescue count");
+        assertEqual(1, memory.getRescuedMallocCount(), "Rescued malloc count");
+        assertEqual(1, (int) memory.getRescueMerges(), "Rescue merges");
+        assertEqual("(0 , 10) (20 , 10) (40 , 10) \n(10 , 10) (30 , 10) (50 , 10) (60 , 10) (90 , 10) (70 , 20) ",
+                    memory.toString(), "State after the rescues");
+    }
+
+    private static void testRescueKeepsMemoryConsistent() {
+        for (AllocationPolicy policy : AllocationPolicy.values()) {
+            MemorySpace plain = new MemorySpace(5000, policy);
+            MemorySpace rescued = new MemorySpace(5000, policy);
+            rescued.setRescueSteps(8);
+            int[] trace = MemorySpaceBenchmark.randomTrace(3000, 13);
+            int plainFailures = MemorySpaceBenchmark.replay(plain, trace);
+            int rescuedFailures = MemorySpaceBenchmark.replay(rescued, trace);
+            assertPartition(rescued, 5000, policy + " with rescues");
+            if (rescued.getRescueCount() == 0 || rescuedFailures != rescued.getRescueCount() - rescued.getRescuedMallocCount()) {
+                throw new AssertionError(policy + ": every failing malloc should try a rescue");
+            }
+            if (plainFailures == 0) {
+                throw new AssertionError(policy + ": the trace should make mallocs fail");
+            }
+            if (rescued.getRescuedMallocCount() == 0 || rescuedFailures >= plainFailures) {
+                throw new AssertionError(policy + ": rescues should turn failing mallocs into successful ones ("
+                                         + rescuedFailures + " failures with rescues, " + plainFailures + " without)");
+            }
+        }
+    }
+
+    // Checks that the free and allocated blocks of the given memory space exactly cover [0, size)
+    private static void assertPartition(MemorySpace memory, int size, String message) {
+        java.util.regex.Matcher matcher = java.util.regex.Pattern.compile("\\((\\d+) , (\\d+)\\)").matcher(memory.toString());
+        boolean[] used = new boolean[size];
+        int total = 0;
+        while (matcher.find()) {
+            int base = Integer.parseInt(matcher.group(1));
+            int length = Integer.parseInt(matcher.group(2));
+            for (int i = base; i < base + length; i++) {
+                if (used[i]) {
+                    throw new AssertionError(message + ": address " + i + " is in two blocks");
+                }
+                used[i] = true;
+            }
+            total += length;
+        }
+        assertEqual(size, total, message + ": total length of all blocks");
+    }
+
+    // Replays the same random trace on a first-fit memory space and on a memory space
+    // that uses the given policy, and checks that both behave exactly the same.
+    private static void assertSameAsFirstFit(AllocationPolicy policy, String message) {
+        MemorySpace expected = new MemorySpace(10000);
+        MemorySpace actual = new MemorySpace(10000, policy);
+        java.util.Random random = new java.util.Random(42);
+        java.util.ArrayList<Integer> live = new java.util.ArrayList<>();
+        for (int step = 0; step < 3000; step++) {
+            int op = random.nextInt(10);
+            if (op < 6 || live.isEmpty()) {
+                int length = 1 + random.nextInt(200);
+                int address = expected.malloc(length);
+                assertEqual(address, actual.malloc(length), message + " malloc at step " + step);
+                if (address != -1) {
+                    live.add(address);
+                }
+            } else if (op < 9) {
+                int address = live.remove(random.nextInt(live.size()));
+                expected.free(address);
+                actual.free(address);
+            } else {
+                expected.defrag();
+                actual.defrag();
+            }
+            assertEqual(expected.toString(), actual.toString(), message + " state at step " + step);
+        }
+    }
+
+    private static void assertEqual(String expected, String actual, String message) {
+        if (!expected.equals(actual)) {
+            throw new AssertionError(message + ":\nExpected: " + expected + "\nActual: " + actual);
+        }
+    }
+
     private static void assertEqual(int expected, int actual, String message) {
         if (expected != actual) {
             throw new AssertionError(message + ": Expected " + expected + " but got " + actual);
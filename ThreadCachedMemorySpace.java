@@ -0,0 +1,262 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * A thread-local allocation cache (a "tcache") in front of a thread-safe memory allocator.
+ * When a thread frees a block, the block is not returned to the backing allocator: it is kept in
+ * the thread's cache, in a bin of blocks of the same length. When the thread later allocates a
+ * block of that exact length, it gets the most recently cached block, without touching the
+ * backing allocator and without scanning any free list.
+ *
+ * The length of each block allocated through this cache is kept in a shared table, split into
+ * stripes with a lock each, so a block can be freed (and cached) by any thread, at its real
+ * length. The table also tells which blocks are cached, so freeing a cached block again does nothing.
+ *
+ * Each cache holds at most maxCachedBlocks blocks; blocks freed when the cache is full go back to
+ * the backing allocator. Every flushInterval frees, a thread returns all its cached blocks to the
+ * backing allocator, and so do the caches of the threads that have exited. flush() and defrag()
+ * return the blocks of every cache. A thread's cache has a lock of its own, which only these
+ * flushes by other threads contend for. Cached blocks remain allocated as far as the backing
+ * allocator is concerned, so they appear in the allocated list of toString.
+ */
+public class ThreadCachedMemorySpace implements MemoryAllocator {
+
+    private static final int STRIPES = 64; // number of stripes of the table of lengths (a power of two)
+
+    private final MemoryAllocator backing; // must be thread-safe, e.g. a ConcurrentMemorySpace
+    private final int maxCachedBlocks;     // maximal number of blocks in a thread's cache
+    private final int flushInterval;       // number of frees between flushes of a thread's cache
+    private final ThreadLocal<Cache> caches;
+    private final ArrayList<Cache> allCaches; // the caches of all the threads (guarded by itself)
+    // lengths[s] maps the address of each block allocated through this cache, in stripe s,
+    // to its length, or to -length while the block is cached (guarded by lengths[s])
+    private final IntIntMap[] lengths;
+
+    /** A bin of cached blocks of one length: a stack of their addresses. */
+    private static class Bin {
+        final int length;
+        int[] addresses = new int[4];
+        int count;
+
+        Bin(int length) {
+            this.length = length;
+        }
+    }
+
+    /** The cache of one thread (guarded by itself). */
+    private static class Cache {
+        final Thread owner;
+        final IntMap<Bin> bins = new IntMap<>();       // length -> bin of cached blocks of that length
+        final ArrayList<Bin> allBins = new ArrayList<>();
+        int cachedBlocks;                              // number of blocks in all the bins
+        int freesSinceFlush;
+        long hits;                                     // mallocs served from the cache
+        long misses;                                   // mallocs that went to the backing allocator
+
+        Cache(Thread owner) {
+            this.owner = owner;
+        }
+    }
+
+    /**
+     * Constructs a thread cache in front of the given thread-safe allocator.
+     * @param maxCachedBlocks the maximal number of blocks that each thread can keep in its cache
+     * @param flushInterval the number of frees after which a thread returns its cached blocks
+     */
+    public ThreadCachedMemorySpace(MemoryAllocator backing, int maxCachedBlocks, int flushInterval) {
+        this.backing = backing;
+        this.maxCachedBlocks = maxCachedBlocks;
+        this.flushInterval = flushInterval;
+        allCaches = new ArrayList<>();
+        caches = ThreadLocal.withInitial(() -> {
+            Cache cache = new Cache(Thread.currentThread());
+            synchronized (allCaches) {
+                allCaches.add(cache);
+            }
+            return cache;
+        });
+        lengths = new IntIntMap[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            lengths[i] = new IntIntMap();
+        }
+    }
+
+    /**
+     * Allocates a memory block of length 'length': a cached block of this exact length if the
+     * calling thread has one, or otherwise a block from the backing allocator.
+     * Returns the base address of the allocated block, or -1 if it can't be allocated.
+     */
+    public int malloc(int length) {
+        if (length <= 0) {
+            return -1;
+        }
+        Cache cache = caches.get();
+        int address = -1;
+        synchronized (cache) {
+            Bin bin = cache.bins.get(length);
+            if (bin != null && bin.count > 0) {
+                address = bin.addresses[--bin.count];
+                cache.cachedBlocks--;
+                cache.hits++;
+            } else {
+                cache.misses++;
+            }
+        }
+        if (address == -1) {
+            address = backing.malloc(length);
+            if (address == -1) {
+                return -1;
+            }
+        }
+        IntIntMap stripe = stripeOf(address);
+        synchronized (stripe) {
+            stripe.put(address, length);
+        }
+        return address;
+    }
+
+    /**
+     * Frees the memory block whose base address == address. If it was allocated through this cache
+     * and the calling thread's cache has room, the block is cached; otherwise it is freed in the
+     * backing allocator. Freeing a block that is already cached does nothing.
+     */
+    public void free(int address) {
+        int length;
+        IntIntMap stripe = stripeOf(address);
+        synchronized (stripe) {
+            length = stripe.get(address, 0);
+            if (length > 0) {
+                stripe.put(address, -length); // from now on, the block counts as cached
+            }
+        }
+        if (length == 0) {
+            backing.free(address); // not allocated through this cache
+            return;
+        }
+        if (length < 0) {
+            return; // already freed into a cache
+        }
+        Cache cache = caches.get();
+        boolean flushNow;
+        synchronized (cache) {
+            if (cache.cachedBlocks == maxCachedBlocks) {
+                release(address);
+            } else {
+                Bin bin = cache.bins.get(length);
+                if (bin == null) {
+                    bin = new Bin(length);
+                    cache.bins.put(length, bin);
+                    cache.allBins.add(bin);
+                }
+                if (bin.count == bin.addresses.length) {
+                    bin.addresses = Arrays.copyOf(bin.addresses, 2 * bin.count);
+                }
+                bin.addresses[bin.count++] = address;
+                cache.cachedBlocks++;
+            }
+            flushNow = ++cache.freesSinceFlush >= flushInterval;
+        }
+        if (flushNow) {
+            drain(cache);
+            drainExited();
+        }
+    }
+
+    /** Returns all the blocks in the caches of all the threads to the backing allocator. */
+    public void flush() {
+        Cache[] snapshot;
+        synchronized (allCaches) {
+            snapshot = allCaches.toArray(new Cache[0]);
+        }
+        for (Cache cache : snapshot) {
+            drain(cache);
+        }
+        drainExited();
+    }
+
+    /** Flushes the caches of all the threads, and defragments the backing allocator. */
+    public void defrag() {
+        flush();
+        backing.defrag();
+    }
+
+    /** Returns the number of blocks in the calling thread's cache. */
+    public int getCachedBlocks() {
+        Cache cache = caches.get();
+        synchronized (cache) {
+            return cache.cachedBlocks;
+        }
+    }
+
+    /** Returns the number of mallocs of the calling thread that were served from its cache. */
+    public long getCacheHits() {
+        Cache cache = caches.get();
+        synchronized (cache) {
+            return cache.hits;
+        }
+    }
+
+    /** Returns the number of mallocs of the calling thread that went to the backing allocator. */
+    public long getCacheMisses() {
+        Cache cache = caches.get();
+        synchronized (cache) {
+            return cache.misses;
+        }
+    }
+
+    /** Returns the number of threads whose caches are registered (the exited ones are dropped when drained). */
+    public int getCacheCount() {
+        synchronized (allCaches) {
+            return allCaches.size();
+        }
+    }
+
+    /** Returns the state of the backing allocator (where cached blocks are still allocated). */
+    public String toString() {
+        return backing.toString();
+    }
+
+    // Returns all the blocks of the given cache to the backing allocator
+    private void drain(Cache cache) {
+        synchronized (cache) {
+            for (Bin bin : cache.allBins) {
+                for (int i = 0; i < bin.count; i++) {
+                    release(bin.addresses[i]);
+                }
+                bin.count = 0;
+            }
+            cache.cachedBlocks = 0;
+            cache.freesSinceFlush = 0;
+        }
+    }
+
+    // Drains the caches of the threads that have exited, and forgets them
+    private void drainExited() {
+        ArrayList<Cache> exited = new ArrayList<>();
+        synchronized (allCaches) {
+            for (int i = allCaches.size() - 1; i >= 0; i--) {
+                if (!allCaches.get(i).owner.isAlive()) {
+                    exited.add(allCaches.remove(i));
+                }
+            }
+        }
+        for (Cache cache : exited) {
+            drain(cache);
+        }
+    }
+
+    // Forgets the length of the given block, and frees it in the backing allocator.
+    // The length is forgotten first, so that a new allocation of the address can't lose its length.
+    private void release(int address) {
+        IntIntMap stripe = stripeOf(address);
+        synchronized (stripe) {
+            stripe.remove(address, 0);
+        }
+        backing.free(address);
+    }
+
+    // Returns the stripe of the table of lengths where the given address is kept
+    private IntIntMap stripeOf(int address) {
+        return lengths[(address * 0x9E3779B9) >>> (32 - Integer.numberOfTrailingZeros(STRIPES))];
+    }
+}
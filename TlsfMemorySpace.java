@@ -0,0 +1,219 @@
+/**
+ * A managed memory space that allocates memory with the TLSF (two-level segregated fit) algorithm,
+ * whose malloc and free take O(1) time, however many free blocks there are.
+ *
+ * The free blocks are kept in segregated lists: a first level of power-of-two size ranges, each
+ * split linearly into SL_COUNT second-level ranges. Two levels of bitmaps tell which lists are
+ * not empty, so the list of the smallest range that surely holds a request is found with two
+ * Integer.numberOfTrailingZeros, and its first block is taken. A freed block is merged at once
+ * with its free neighbours, which are found by their end and base addresses, so free memory
+ * is always defragmented.
+ */
+public class TlsfMemorySpace implements InspectableAllocator {
+
+    private static final int SL_LOG2 = 4;              // log2 of the number of second-level ranges
+    private static final int SL_COUNT = 1 << SL_LOG2;  // number of second-level ranges per first level
+    private static final int FL_COUNT = 32 - SL_LOG2;  // first level 0 holds the lengths [0, SL_COUNT)
+
+    private final LinkedList[][] freeLists;  // freeLists[fl][sl] (null until first used)
+    private int firstLevelBits;              // bit fl is set iff some freeLists[fl][*] is not empty
+    private final int[] secondLevelBits;     // bit sl of secondLevelBits[fl] is set iff freeLists[fl][sl] is not empty
+    private final IntMap<Node> freeByStart;  // base address -> node, of each free block
+    private final IntMap<Node> freeByEnd;    // base address + length -> node, of each free block
+    private final LinkedList allocatedList;  // blocks currently allocated
+    private final IntMap<Node> allocatedIndex; // base address -> node of allocatedList
+
+    /** Constructs a new TLSF memory space of a given maximal size. */
+    public TlsfMemorySpace(int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("maxSize must not be negative");
+        }
+        freeLists = new LinkedList[FL_COUNT][];
+        secondLevelBits = new int[FL_COUNT];
+        freeByStart = new IntMap<>();
+        freeByEnd = new IntMap<>();
+        allocatedList = new LinkedList();
+        allocatedIndex = new IntMap<>();
+        // entire memory is initially free
+        if (maxSize > 0) {
+            addFree(new MemoryBlock(0, maxSize));
+        }
+    }
+
+    /**
+     * Allocates a memory block of length 'length', from the first block of the smallest
+     * non-empty range whose blocks are all long enough. If there is no such range, the first block
+     * of the request's own range is taken, if it is long enough. The rest of that block stays free.
+     * Returns the base address of the allocated block, or -1 if fail.
+     */
+    public int malloc(int length) {
+        if (length <= 0) {
+            return -1;
+        }
+        Node freeNode = findFree(length);
+        if (freeNode == null) {
+            return -1;
+        }
+        MemoryBlock block = freeNode.block;
+        removeFree(freeNode);
+        int address = block.baseAddress;
+        if (block.length > length) {
+            addFree(new MemoryBlock(address + length, block.length - length));
+        }
+        allocatedList.addLast(new MemoryBlock(address, length));
+        allocatedIndex.put(address, allocatedList.getLast());
+        return address;
+    }
+
+    /**
+     * Frees the memory block whose base address == address, and merges it with the free blocks
+     * that end where it starts and start where it ends.
+     * Does nothing if no block is allocated at this address.
+     * @throws IllegalArgumentException if no block is allocated (see MemorySpace.free)
+     */
+    public void free(int address) {
+        if (allocatedList.getSize() == 0) {
+            throw new IllegalArgumentException("index must be between 0 and size");
+        }
+        Node node = allocatedIndex.remove(address);
+        if (node == null) {
+            return;
+        }
+        allocatedList.remove(node);
+        int base = node.block.baseAddress;
+        int length = node.block.length;
+        Node before = freeByEnd.get(base);
+        if (before != null) {
+            removeFree(before);
+            base = before.block.baseAddress;
+            length += before.block.length;
+        }
+        Node after = freeByStart.get(base + length);
+        if (after != null) {
+            removeFree(after);
+            length += after.block.length;
+        }
+        addFree(new MemoryBlock(base, length));
+    }
+
+    /** Does nothing: free blocks are merged with their neighbours as soon as they are freed. */
+    public void defrag() {
+    }
+
+    /** Returns an immutable snapshot of the free blocks and the allocated blocks, in the order of toString. */
+    public MemorySpaceSnapshot snapshot() {
+        int freeCount = freeByStart.size();
+        int[] freeBases = new int[freeCount];
+        int[] freeLengths = new int[freeCount];
+        int i = 0;
+        for (LinkedList[] lists : freeLists) {
+            if (lists != null) {
+                for (LinkedList list : lists) {
+                    if (list != null) {
+                        i = MemorySpaceSnapshot.copy(list, freeBases, freeLengths, i);
+                    }
+                }
+            }
+        }
+        int[] allocatedBases = new int[allocatedList.getSize()];
+        int[] allocatedLengths = new int[allocatedList.getSize()];
+        MemorySpaceSnapshot.copy(allocatedList, allocatedBases, allocatedLengths, 0);
+        return new MemorySpaceSnapshot(freeBases, freeLengths, allocatedBases, allocatedLengths);
+    }
+
+    /**
+     * Returns the free blocks (range after range, from the shortest), then "\n",
+     * then the allocated blocks, in the format of MemorySpace.toString.
+     */
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (LinkedList[] lists : freeLists) {
+            if (lists != null) {
+                for (LinkedList list : lists) {
+                    if (list != null) {
+                        sb.append(list.toString());
+                    }
+                }
+            }
+        }
+        return sb + "\n" + allocatedList.toString();
+    }
+
+    // Returns the free node that malloc(length) takes, or null if none
+    private Node findFree(int length) {
+        // round the length up to the next range boundary, so that every block of its range fits
+        int fli = 31 - Integer.numberOfLeadingZeros(length);
+        long rounded = (fli < SL_LOG2) ? length : (long) length + (1L << (fli - SL_LOG2)) - 1;
+        if (rounded <= Integer.MAX_VALUE) {
+            int fl = firstLevel((int) rounded);
+            int sl = secondLevel((int) rounded, fl);
+            int slBits = secondLevelBits[fl] & (-1 << sl);
+            if (slBits == 0) {
+                int flBits = (fl + 1 < FL_COUNT) ? firstLevelBits & (-1 << (fl + 1)) : 0;
+                if (flBits != 0) {
+                    fl = Integer.numberOfTrailingZeros(flBits);
+                    slBits = secondLevelBits[fl];
+                }
+            }
+            if (slBits != 0) {
+                return freeLists[fl][Integer.numberOfTrailingZeros(slBits)].getFirst();
+            }
+        }
+        // the rounding skips the request's own range, whose first block may still be long enough
+        int fl = firstLevel(length);
+        int sl = secondLevel(length, fl);
+        if ((secondLevelBits[fl] & (1 << sl)) != 0) {
+            Node first = freeLists[fl][sl].getFirst();
+            if (first.block.length >= length) {
+                return first;
+            }
+        }
+        return null;
+    }
+
+    // Returns the first level of the given length
+    private static int firstLevel(int length) {
+        int fli = 31 - Integer.numberOfLeadingZeros(length);
+        return (fli < SL_LOG2) ? 0 : fli - SL_LOG2 + 1;
+    }
+
+    // Returns the second level of the given length, in the given first level
+    private static int secondLevel(int length, int fl) {
+        return (fl == 0) ? length : (length >>> (fl - 1)) ^ SL_COUNT;
+    }
+
+    // Adds the given block at the end of the list of its range
+    private void addFree(MemoryBlock block) {
+        int fl = firstLevel(block.length);
+        int sl = secondLevel(block.length, fl);
+        if (freeLists[fl] == null) {
+            freeLists[fl] = new LinkedList[SL_COUNT];
+        }
+        if (freeLists[fl][sl] == null) {
+            freeLists[fl][sl] = new LinkedList();
+        }
+        LinkedList list = freeLists[fl][sl];
+        list.addLast(block);
+        freeByStart.put(block.baseAddress, list.getLast());
+        freeByEnd.put(block.baseAddress + block.length, list.getLast());
+        secondLevelBits[fl] |= 1 << sl;
+        firstLevelBits |= 1 << fl;
+    }
+
+    // Removes the given free node from the list of its range
+    private void removeFree(Node node) {
+        MemoryBlock block = node.block;
+        int fl = firstLevel(block.length);
+        int sl = secondLevel(block.length, fl);
+        LinkedList list = freeLists[fl][sl];
+        list.remove(node);
+        freeByStart.remove(block.baseAddress);
+        freeByEnd.remove(block.baseAddress + block.length);
+        if (list.getSize() == 0) {
+            secondLevelBits[fl] &= ~(1 << sl);
+            if (secondLevelBits[fl] == 0) {
+                firstLevelBits &= ~(1 << fl);
+            }
+        }
+    }
+}